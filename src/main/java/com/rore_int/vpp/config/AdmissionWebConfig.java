@@ -0,0 +1,49 @@
+package com.rore_int.vpp.config;
+
+import com.rore_int.vpp.service.AdmissionLimiter;
+import com.rore_int.vpp.service.AdmissionLimiter.Priority;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Sheds creates and NDJSON ingests before their bodies are read when the admission limit has no
+ * headroom for them, so an overloaded instance does not spend CPU parsing and validating batches
+ * it would then reject. Bodies of at least {@code vpp.admission.large-body-size} are checked as
+ * large requests; the service still takes the permit once the batch size is known.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdmissionWebConfig implements WebMvcConfigurer {
+    private final AdmissionLimiter admissionLimiter;
+    private final long largeBodyBytes;
+
+    public AdmissionWebConfig(AdmissionLimiter admissionLimiter,
+                              @Value("${vpp.admission.large-body-size:64KB}") DataSize largeBodySize) {
+        this.admissionLimiter = admissionLimiter;
+        this.largeBodyBytes = largeBodySize.toBytes();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                // Interceptors run again when an async create completes; only the first dispatch is checked
+                if (request.getDispatcherType() == DispatcherType.REQUEST && "POST".equals(request.getMethod())) {
+                    boolean large = request.getRequestURI().endsWith("/stream")
+                            || request.getContentLengthLong() >= largeBodyBytes;
+                    admissionLimiter.checkHeadroom(large ? Priority.LARGE : Priority.SMALL);
+                }
+                return true;
+            }
+        }).addPathPatterns("/api/batteries", "/api/batteries/stream");
+    }
+}
@@ -1,22 +1,100 @@
 package com.rore_int.vpp.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class AsyncConfig {
 
+    // Primary so unqualified Executor injection points keep getting the create executor
     @Bean
-    public Executor taskExecutor() {
+    @Primary
+    @ConditionalOnProperty(name = "vpp.async.mode", havingValue = "pool", matchIfMissing = true)
+    public Executor taskExecutor(MeterRegistry meterRegistry) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(10);
         executor.setMaxPoolSize(50);
         executor.setQueueCapacity(100);
         executor.setThreadNamePrefix("BatteryAsyncThread-");
+        executor.setRejectedExecutionHandler(countingRejections(meterRegistry, "taskExecutor"));
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs batch-search queries apart from the create executor, so read-only searches never take
+     * queue slots from creates and their rejections are counted under their own name. A batch
+     * whose helpers are rejected finishes its queries on the request thread.
+     */
+    @Bean
+    public Executor searchExecutor(MeterRegistry meterRegistry,
+                                   @Value("${vpp.search.executor.pool-size:8}") int poolSize,
+                                   @Value("${vpp.search.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("BatterySearchThread-");
+        executor.setRejectedExecutionHandler(countingRejections(meterRegistry, "searchExecutor"));
+        executor.initialize();
+        return executor;
+    }
+
+    // Active, pool and queue gauges are bound by Actuator; rejections are not, so count them here
+    private static RejectedExecutionHandler countingRejections(MeterRegistry meterRegistry, String name) {
+        Counter rejected = Counter.builder("vpp.executor.rejected")
+                .description("Tasks rejected because the executor queue was full")
+                .tag("name", name)
+                .register(meterRegistry);
+        ThreadPoolExecutor.AbortPolicy abort = new ThreadPoolExecutor.AbortPolicy();
+        return (task, pool) -> {
+            rejected.increment();
+            abort.rejectedExecution(task, pool);
+        };
+    }
+
+    /**
+     * Runs each save on its own virtual thread, so bursts never hit a full queue. Saves spend
+     * their time waiting on JDBC, so concurrency is bounded by permits sized to the connection
+     * pool instead of by platform threads; excess saves park cheaply until a permit frees up.
+     */
+    @Bean(name = "taskExecutor")
+    @Primary
+    @ConditionalOnProperty(name = "vpp.async.mode", havingValue = "virtual")
+    public Executor virtualTaskExecutor(
+            @Value("${vpp.async.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency) {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("vpp.async.mode=virtual requires Java 21 or newer, but running on "
+                    + Runtime.version());
+        }
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("BatteryVirtualThread-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(boundedBy(new Semaphore(maxConcurrency)));
+        return executor;
+    }
+
+    // Permits are taken on the task's own thread so submitters never block
+    static TaskDecorator boundedBy(Semaphore permits) {
+        return task -> () -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package com.rore_int.vpp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary, each with its
+ * own Hikari pool. Only active when {@code vpp.datasource.replica.url} is set; otherwise Boot's
+ * single auto-configured pool is used.
+ * <p>
+ * Routing happens in {@link LazyConnectionDataSourceProxy}, which defers the physical checkout
+ * until the first statement, by which point a {@code @Transactional(readOnly = true)} method has
+ * marked its connection read-only. Flyway, JdbcTemplate and JPA all use the proxy.
+ */
+@Configuration
+@ConditionalOnProperty(name = "vpp.datasource.replica.url")
+public class DataSourceRoutingConfig {
+    static final int REPLICA_CONNECTION_TIMEOUT_MILLIS = 2000;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties,
+                                              ObjectProvider<JdbcConnectionDetails> connectionDetails) {
+        // Service connections (e.g. Testcontainers) take precedence over spring.datasource.*, as in Boot's own pool
+        JdbcConnectionDetails details = connectionDetails.getIfAvailable();
+        HikariDataSource dataSource = details == null
+                ? properties.initializeDataSourceBuilder().type(HikariDataSource.class).build()
+                : DataSourceBuilder.create(properties.getClassLoader())
+                        .type(HikariDataSource.class)
+                        .driverClassName(details.getDriverClassName())
+                        .url(details.getJdbcUrl())
+                        .username(details.getUsername())
+                        .password(details.getPassword())
+                        .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Credentials default to the primary's. The pool connects on first use, so an unreachable
+     * replica does not block startup, and waits at most two seconds for a connection before
+     * reads fall back to the primary; both can be overridden under {@code vpp.datasource.replica.hikari}.
+     */
+    @Bean
+    @ConfigurationProperties("vpp.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Qualifier("primaryDataSource") HikariDataSource primary,
+                                              @Value("${vpp.datasource.replica.url}") String url,
+                                              @Value("${vpp.datasource.replica.username:}") String username,
+                                              @Value("${vpp.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setDriverClassName(primary.getDriverClassName());
+        dataSource.setUsername(username.isEmpty() ? primary.getUsername() : username);
+        dataSource.setPassword(password.isEmpty() ? primary.getPassword() : password);
+        dataSource.setReadOnly(true);
+        dataSource.setConnectionTimeout(REPLICA_CONNECTION_TIMEOUT_MILLIS);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primary,
+                                 @Qualifier("replicaDataSource") HikariDataSource replica,
+                                 @Value("${vpp.datasource.replica.retry-after:30s}") Duration retryAfter,
+                                 MeterRegistry meterRegistry) {
+        Counter fallbacks = Counter.builder("vpp.datasource.replica.fallbacks")
+                .description("Read-only connections taken from the primary because the replica was unavailable")
+                .register(meterRegistry);
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(new ReplicaFallbackDataSource(replica, primary, retryAfter, fallbacks));
+        return routing;
+    }
+
+    // Reads survive a replica outage, so only the primary decides whether the instance is healthy
+    @Bean
+    public HealthContributor dbHealthContributor(@Qualifier("primaryDataSource") HikariDataSource primary) {
+        return new DataSourceHealthIndicator(primary);
+    }
+}
@@ -0,0 +1,69 @@
+package com.rore_int.vpp.config;
+
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Hands out replica connections, and primary connections while the replica cannot be reached.
+ * After a failed checkout the replica is skipped for {@code retryAfter}, so an outage costs one
+ * connection timeout rather than one per request.
+ */
+class ReplicaFallbackDataSource extends DelegatingDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaFallbackDataSource.class);
+
+    private final DataSource primary;
+    private final long retryAfterNanos;
+    private final Counter fallbacks;
+    private volatile long skipReplicaUntil = System.nanoTime();
+
+    ReplicaFallbackDataSource(DataSource replica, DataSource primary, Duration retryAfter, Counter fallbacks) {
+        super(replica);
+        this.primary = primary;
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.fallbacks = fallbacks;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!isReplicaSkipped()) {
+            try {
+                return super.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                // Hikari reports a pool that could not start with an unchecked exception
+                skipReplica(e);
+            }
+        }
+        fallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!isReplicaSkipped()) {
+            try {
+                return super.getConnection(username, password);
+            } catch (SQLException | RuntimeException e) {
+                skipReplica(e);
+            }
+        }
+        fallbacks.increment();
+        return primary.getConnection(username, password);
+    }
+
+    boolean isReplicaSkipped() {
+        return System.nanoTime() - skipReplicaUntil < 0;
+    }
+
+    private void skipReplica(Exception e) {
+        skipReplicaUntil = System.nanoTime() + retryAfterNanos;
+        logger.warn("Read replica unavailable, reading from the primary for the next {} s: {}",
+                retryAfterNanos / 1_000_000_000, e.getMessage());
+    }
+}
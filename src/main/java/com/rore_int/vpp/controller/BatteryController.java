@@ -1,52 +1,216 @@
 package com.rore_int.vpp.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryChunkedCreateResponse;
+import com.rore_int.vpp.dto.BatteryIngestSummary;
+import com.rore_int.vpp.dto.BatteryNamePage;
+import com.rore_int.vpp.dto.BatterySearchQuery;
 import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.dto.BatteryStatisticsResponse;
+import com.rore_int.vpp.dto.SearchCacheStats;
 import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.OverloadedException;
+import com.rore_int.vpp.logging.LogSampler;
+import com.rore_int.vpp.service.BatteryIngestService;
+import com.rore_int.vpp.service.BatterySearchBatchService;
 import com.rore_int.vpp.service.BatteryService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/batteries")
 @Validated
+// The reactive profile serves the same paths from ReactiveBatteryController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class BatteryController {
     private static final Logger logger = LoggerFactory.getLogger(BatteryController.class);
     private final BatteryService batteryService;
+    private final BatteryIngestService batteryIngestService;
+    private final BatterySearchBatchService batterySearchBatchService;
+    private final ObjectMapper objectMapper;
+    private final LogSampler logSampler;
 
-    public BatteryController(BatteryService batteryService) {
+    public BatteryController(BatteryService batteryService, BatteryIngestService batteryIngestService,
+                             BatterySearchBatchService batterySearchBatchService,
+                             ObjectMapper objectMapper, LogSampler logSampler) {
         this.batteryService = batteryService;
+        this.batteryIngestService = batteryIngestService;
+        this.batterySearchBatchService = batterySearchBatchService;
+        this.objectMapper = objectMapper;
+        this.logSampler = logSampler;
     }
 
     @PostMapping
-    public CompletableFuture<ResponseEntity<List<Battery>>> createBatteries(@RequestBody @Valid List<Battery> batteries) {
-        logger.info("Received request to create {} batteries", batteries.size());
-        return batteryService.createBatteries(batteries)
+    public CompletableFuture<ResponseEntity<List<Battery>>> createBatteries(
+            @RequestBody @Valid List<Battery> batteries,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        long start = System.nanoTime();
+        // One decision per request so a sampled request logs both its lines
+        boolean sampled = logSampler.sample("POST /api/batteries");
+        if (sampled) {
+            logger.info("Received request to create {} batteries", batteries.size());
+        }
+        return batteryService.createBatteries(batteries, idempotencyKey)
                 .thenApply(savedBatteries -> {
-                    logger.info("Successfully processed creation of {} batteries", savedBatteries.size());
+                    if (logSampler.isSlow(start)) {
+                        logger.warn("Slow creation of {} batteries took {} ms",
+                                savedBatteries.size(), LogSampler.elapsedMillis(start));
+                    } else if (sampled) {
+                        logger.info("Successfully processed creation of {} batteries", savedBatteries.size());
+                    }
                     return ResponseEntity.ok(savedBatteries);
                 })
                 .exceptionally(throwable -> {
+                    // Shed requests become a 429 in GlobalExceptionHandler and are not errors
+                    if (throwable.getCause() instanceof OverloadedException overloaded) {
+                        throw overloaded;
+                    }
                     logger.error("Error processing battery creation: {}", throwable.getMessage(), throwable);
                     throw new RuntimeException("Failed to create batteries", throwable);
                 });
     }
 
+    @PostMapping(params = "commit=chunked")
+    public CompletableFuture<ResponseEntity<BatteryChunkedCreateResponse>> createBatteriesInChunks(
+            @RequestBody @Valid List<Battery> batteries,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        logger.info("Received request to create {} batteries with per-chunk commits", batteries.size());
+        return batteryService.createBatteriesInChunks(batteries, idempotencyKey)
+                .thenApply(response -> {
+                    if (response.getFailed() > 0) {
+                        logger.warn("Committed {} of {} batteries; {} failed", response.getCommitted(),
+                                batteries.size(), response.getFailed());
+                    }
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(throwable -> {
+                    if (throwable.getCause() instanceof OverloadedException overloaded) {
+                        throw overloaded;
+                    }
+                    logger.error("Error processing chunked battery creation: {}", throwable.getMessage(), throwable);
+                    throw new RuntimeException("Failed to create batteries", throwable);
+                });
+    }
+
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BatteryIngestSummary> streamBatteries(InputStream batteries) {
+        logger.info("Received request to stream batteries");
+        BatteryIngestSummary summary = batteryIngestService.ingest(batteries);
+        return ResponseEntity.ok(summary);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<BatterySearchResponse> searchBatteriesByPostcodeRange(
+            @RequestParam String minPostcode,
+            @RequestParam String maxPostcode,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) Integer maxCapacity,
+            @RequestParam(defaultValue = "true") boolean includeNames) {
+        if (logSampler.sample("GET /api/batteries/search")) {
+            logger.info("Received request to search batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, includeNames: {}",
+                    minPostcode, maxPostcode, minCapacity, maxCapacity, includeNames);
+        }
+        BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, includeNames);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/search/batch")
+    public ResponseEntity<List<BatterySearchResponse>> searchBatteriesByPostcodeRanges(
+            @RequestBody List<BatterySearchQuery> queries,
+            @RequestParam(defaultValue = "true") boolean includeNames) {
+        if (logSampler.sample("POST /api/batteries/search/batch")) {
+            logger.info("Received request to search batteries in {} postcode ranges, includeNames: {}",
+                    queries.size(), includeNames);
+        }
+        List<BatterySearchResponse> responses = batterySearchBatchService.search(queries, includeNames);
+        return ResponseEntity.ok(responses);
+    }
+
+    @GetMapping(value = "/search", params = "pageSize")
+    public ResponseEntity<BatteryNamePage> searchBatteryPageByPostcodeRange(
+            @RequestParam String minPostcode,
+            @RequestParam String maxPostcode,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) Integer maxCapacity,
+            @RequestParam int pageSize,
+            @RequestParam(required = false) String after) {
+        if (logSampler.sample("GET /api/batteries/search?pageSize")) {
+            logger.info("Received request to search battery page in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, pageSize: {}",
+                    minPostcode, maxPostcode, minCapacity, maxCapacity, pageSize);
+        }
+        BatteryNamePage page = batteryService.searchBatteryNamePage(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, pageSize, after);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBatteriesByPostcodeRange(
             @RequestParam String minPostcode,
             @RequestParam String maxPostcode,
             @RequestParam(required = false) Integer minCapacity,
             @RequestParam(required = false) Integer maxCapacity) {
-        logger.info("Received request to search batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}",
-                minPostcode, maxPostcode, minCapacity, maxCapacity);
-        BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        if (logSampler.sample("GET /api/batteries/search/stream")) {
+            logger.info("Received request to stream batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}",
+                    minPostcode, maxPostcode, minCapacity, maxCapacity);
+        }
+        // Validate up front: once streaming starts the status can no longer change to 400
+        batteryService.validateSearchParameters(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("batteryNames");
+                BatteryCapacityStats stats = batteryService.streamBatteriesByPostcodeRange(
+                        minPostcode, maxPostcode, minCapacity, maxCapacity, name -> {
+                            try {
+                                generator.writeString(name);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                generator.writeEndArray();
+                generator.writeNumberField("totalCapacity", stats.getTotalCapacity());
+                generator.writeNumberField("averageCapacity", stats.getAverageCapacity());
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/statistics")
+    public ResponseEntity<BatteryStatisticsResponse> getStatisticsByPostcode(
+            @RequestParam String minPostcode,
+            @RequestParam String maxPostcode,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) Integer maxCapacity,
+            @RequestParam(defaultValue = "4") int prefixLength,
+            @RequestParam(defaultValue = "true") boolean includeMedian) {
+        if (logSampler.sample("GET /api/batteries/statistics")) {
+            logger.info("Received request for battery statistics in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, prefixLength: {}, includeMedian: {}",
+                    minPostcode, maxPostcode, minCapacity, maxCapacity, prefixLength, includeMedian);
+        }
+        BatteryStatisticsResponse response = batteryService.getStatisticsByPostcode(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, prefixLength, includeMedian);
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/search/cache-stats")
+    public ResponseEntity<SearchCacheStats> getSearchCacheStats() {
+        return ResponseEntity.ok(batteryService.getSearchCacheStats());
+    }
 }
\ No newline at end of file
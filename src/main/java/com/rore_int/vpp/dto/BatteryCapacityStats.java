@@ -0,0 +1,17 @@
+package com.rore_int.vpp.dto;
+
+import lombok.Data;
+
+@Data
+public class BatteryCapacityStats {
+    private final long count;
+    private final long totalCapacity;
+    private final double averageCapacity;
+
+    // Used by JPQL constructor expressions, where SUM and AVG are null for an empty range
+    public BatteryCapacityStats(Long count, Long totalCapacity, Double averageCapacity) {
+        this.count = count == null ? 0 : count;
+        this.totalCapacity = totalCapacity == null ? 0 : totalCapacity;
+        this.averageCapacity = averageCapacity == null ? 0.0 : averageCapacity;
+    }
+}
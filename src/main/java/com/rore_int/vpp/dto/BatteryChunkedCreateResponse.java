@@ -0,0 +1,30 @@
+package com.rore_int.vpp.dto;
+
+import com.rore_int.vpp.entity.Battery;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BatteryChunkedCreateResponse {
+    private long committed;
+    private long failed;
+    private List<ChunkOutcome> chunks = new ArrayList<>();
+    // Saved batteries of the committed chunks, in request order
+    private List<Battery> batteries = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChunkOutcome {
+        private int index;
+        // Position of the chunk's first battery in the request
+        private int offset;
+        private int size;
+        private boolean committed;
+        private String error;
+    }
+}
@@ -0,0 +1,26 @@
+package com.rore_int.vpp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BatteryIngestSummary {
+    private long accepted;
+    private long rejected;
+    // Valid batteries whose (name, postcode) was already stored; only counted with natural keys enabled
+    private long duplicates;
+    // Only the first rejections are itemised so the summary stays small for huge inputs
+    private List<Rejection> rejections = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rejection {
+        private long line;
+        private String reason;
+    }
+}
@@ -0,0 +1,16 @@
+package com.rore_int.vpp.dto;
+
+import lombok.Data;
+
+@Data
+public class BatteryNameCapacity {
+    private final String name;
+    // Null when the battery has no capacity; such batteries are counted but left out of the average
+    private final Integer capacity;
+
+    // Used by JPQL constructor expressions
+    public BatteryNameCapacity(String name, Integer capacity) {
+        this.name = name;
+        this.capacity = capacity;
+    }
+}
@@ -0,0 +1,15 @@
+package com.rore_int.vpp.dto;
+
+import lombok.Data;
+
+@Data
+public class BatteryNameId {
+    private final String name;
+    private final long id;
+
+    // Used by JPQL constructor expressions
+    public BatteryNameId(String name, Long id) {
+        this.name = name;
+        this.id = id;
+    }
+}
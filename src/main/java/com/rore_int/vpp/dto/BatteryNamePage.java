@@ -0,0 +1,12 @@
+package com.rore_int.vpp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatteryNamePage {
+    private List<String> batteryNames;
+    // Opaque cursor for the next page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,16 @@
+package com.rore_int.vpp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One postcode range and optional capacity filters in a batch search
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatterySearchQuery {
+    private String minPostcode;
+    private String maxPostcode;
+    private Integer minCapacity;
+    private Integer maxCapacity;
+}
@@ -1,12 +1,19 @@
 package com.rore_int.vpp.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.rore_int.vpp.exception.ErrorResponse;
 import lombok.Data;
 
 import java.util.List;
 
 @Data
 public class BatterySearchResponse {
+    // Omitted when only aggregates were requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<String> batteryNames;
     private long totalCapacity;
     private double averageCapacity;
-}
\ No newline at end of file
+    // Only set in a batch, on a query that was shed or failed while the others were answered
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ErrorResponse error;
+}
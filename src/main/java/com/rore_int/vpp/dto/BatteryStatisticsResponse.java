@@ -0,0 +1,13 @@
+package com.rore_int.vpp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatteryStatisticsResponse {
+    // Number of leading postcode digits each bucket covers; 4 means one bucket per postcode
+    private int prefixLength;
+    // In postcode order; postcodes without matching batteries are omitted
+    private List<PostcodeStatistics> buckets;
+}
@@ -0,0 +1,20 @@
+package com.rore_int.vpp.dto;
+
+import lombok.Data;
+
+@Data
+public class PostcodeCapacityTotals {
+    private final String postcode;
+    private final long count;
+    private final long totalCapacity;
+    // Batteries with a capacity, the divisor of AVG(capacity)
+    private final long capacityCount;
+
+    // Used by JPQL constructor expressions
+    public PostcodeCapacityTotals(String postcode, Long count, Long totalCapacity, Long capacityCount) {
+        this.postcode = postcode;
+        this.count = count == null ? 0 : count;
+        this.totalCapacity = totalCapacity == null ? 0 : totalCapacity;
+        this.capacityCount = capacityCount == null ? 0 : capacityCount;
+    }
+}
@@ -0,0 +1,39 @@
+package com.rore_int.vpp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+@Data
+public class PostcodeStatistics {
+    // The postcode, or its leading digits when statistics are bucketed by prefix
+    private final String postcode;
+    private final long count;
+    private final long totalCapacity;
+    // Batteries with a capacity; the divisor of the average, as for AVG(capacity)
+    @JsonIgnore
+    private final long capacityCount;
+    private final Integer minCapacity;
+    private final Integer maxCapacity;
+    private final double averageCapacity;
+    // Exact per postcode; for a prefix bucket, the count-weighted median of its postcodes' medians.
+    // Null when the median was not requested.
+    private final Integer medianCapacity;
+
+    // Used by JPQL constructor expressions; groups are never empty, so count and total are set
+    public PostcodeStatistics(String postcode, Long count, Long totalCapacity, Long capacityCount,
+                              Integer minCapacity, Integer maxCapacity, Integer medianCapacity) {
+        this.postcode = postcode;
+        this.count = count;
+        this.totalCapacity = totalCapacity == null ? 0 : totalCapacity;
+        this.capacityCount = capacityCount;
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+        this.averageCapacity = capacityCount == 0 ? 0.0 : (double) this.totalCapacity / capacityCount;
+        this.medianCapacity = medianCapacity;
+    }
+
+    public PostcodeStatistics(String postcode, Long count, Long totalCapacity, Long capacityCount,
+                              Integer minCapacity, Integer maxCapacity) {
+        this(postcode, count, totalCapacity, capacityCount, minCapacity, maxCapacity, null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.rore_int.vpp.dto;
+
+import lombok.Data;
+
+@Data
+public class SearchCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final long size;
+}
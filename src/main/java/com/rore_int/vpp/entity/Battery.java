@@ -1,28 +1,33 @@
 package com.rore_int.vpp.entity;
 
+import com.rore_int.vpp.validation.Postcode;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
 @Entity
 @Table(name = "batteries")
 @Data
 public class Battery {
+    // Pooled sequence ids keep JDBC insert batching enabled; allocationSize matches hibernate.jdbc.batch_size
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "batteries_seq")
+    @SequenceGenerator(name = "batteries_seq", sequenceName = "batteries_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Name is mandatory")
     private String name;
 
     @NotBlank(message = "Postcode is mandatory")
-    @Pattern(regexp = "\\d{4}", message = "Postcode must be a 4-digit number")
+    @Postcode
+    @Convert(converter = PostcodeConverter.class)
     private String postcode;
 
     @Min(value = 1, message = "Capacity must be positive")
@@ -0,0 +1,31 @@
+package com.rore_int.vpp.entity;
+
+import com.rore_int.vpp.validation.Postcodes;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores 4-digit postcodes in a SMALLINT column. Query parameters compared with
+ * {@code Battery.postcode} pass through this converter too, so range filters are numeric
+ * comparisons in the database while the Java and JSON side keeps the zero-padded string.
+ */
+@Converter
+public class PostcodeConverter implements AttributeConverter<String, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(String postcode) {
+        if (postcode == null) {
+            return null;
+        }
+        int value = Postcodes.parse(postcode);
+        if (value < 0) {
+            throw new IllegalArgumentException("Postcode must be a 4-digit number: " + postcode);
+        }
+        return (short) value;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short postcode) {
+        return postcode == null ? null : Postcodes.format(postcode);
+    }
+}
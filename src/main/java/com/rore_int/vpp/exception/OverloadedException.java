@@ -0,0 +1,15 @@
+package com.rore_int.vpp.exception;
+
+public class OverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public OverloadedException(String message, long retryAfterSeconds) {
+        // Thrown for every shed request while overloaded, so skip the stack trace
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,46 @@
+package com.rore_int.vpp.logging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which success-path log lines are written. Each key (typically an endpoint or
+ * operation) logs its first call and then one in every {@code sampleRate}, so a busy endpoint
+ * cannot crowd out a quiet one. Slow calls are always logged, as are errors, which callers log
+ * without asking the sampler. A rate of 1 logs everything.
+ */
+@Component
+public class LogSampler {
+    private final int sampleRate;
+    private final long slowThresholdNanos;
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public LogSampler(@Value("${vpp.logging.sample-rate:1}") int sampleRate,
+                      @Value("${vpp.logging.slow-threshold:500ms}") Duration slowThreshold) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("vpp.logging.sample-rate must be at least 1");
+        }
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    public boolean sample(String key) {
+        if (sampleRate == 1) {
+            return true;
+        }
+        return counters.computeIfAbsent(key, k -> new AtomicLong()).getAndIncrement() % sampleRate == 0;
+    }
+
+    public boolean isSlow(long startNanos) {
+        return System.nanoTime() - startNanos >= slowThresholdNanos;
+    }
+
+    public static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
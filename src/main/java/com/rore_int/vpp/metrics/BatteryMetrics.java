@@ -0,0 +1,115 @@
+package com.rore_int.vpp.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Application meters for capacity planning. Latencies are published as Prometheus histograms,
+ * so p50/p99 come from {@code histogram_quantile} and can be aggregated across instances;
+ * size distributions publish their p50/p99 directly.
+ */
+@Component
+public class BatteryMetrics {
+
+    public enum SearchType {
+        NAMES, AGGREGATES, PAGE, STREAM, STATISTICS;
+
+        private String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<SearchType, Timer> searchTimers = new EnumMap<>(SearchType.class);
+    private final Map<SearchType, Timer> searchDbTimers = new EnumMap<>(SearchType.class);
+    private final Map<SearchType, DistributionSummary> searchRows = new EnumMap<>(SearchType.class);
+    private final Timer createSuccess;
+    private final Timer createFailure;
+    private final DistributionSummary createBatteries;
+    private final Counter createReplays;
+    private final Timer ingest;
+    private final Counter ingestAccepted;
+    private final Counter ingestRejected;
+    private final Counter summaryMismatches;
+
+    public BatteryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (SearchType type : SearchType.values()) {
+            searchTimers.put(type, latency("vpp.search", "Search latency, including cache hits")
+                    .tag("type", type.tag()).register(registry));
+            if (type != SearchType.STREAM) {
+                // Streamed searches interleave queries with writing, so their query time is not separable
+                searchDbTimers.put(type, latency("vpp.search.db", "Time spent in search queries")
+                        .tag("type", type.tag()).register(registry));
+            }
+            searchRows.put(type, DistributionSummary.builder("vpp.search.rows")
+                    .description("Battery names returned per search")
+                    .baseUnit("batteries")
+                    .publishPercentiles(0.5, 0.99)
+                    .tag("type", type.tag())
+                    .register(registry));
+        }
+        createSuccess = latency("vpp.create", "Battery creation latency until the batteries are committed")
+                .tag("outcome", "success").register(registry);
+        createFailure = latency("vpp.create", "Battery creation latency until the batteries are committed")
+                .tag("outcome", "error").register(registry);
+        createBatteries = DistributionSummary.builder("vpp.create.batteries")
+                .description("Batteries per create request")
+                .baseUnit("batteries")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        createReplays = Counter.builder("vpp.create.replays")
+                .description("Create requests answered from an earlier request with the same idempotency key")
+                .register(registry);
+        ingest = latency("vpp.ingest", "NDJSON ingest duration").register(registry);
+        ingestAccepted = Counter.builder("vpp.ingest.batteries").tag("result", "accepted").register(registry);
+        ingestRejected = Counter.builder("vpp.ingest.batteries").tag("result", "rejected").register(registry);
+        summaryMismatches = Counter.builder("vpp.search.summary.mismatches")
+                .description("Postcodes found out of step with batteries by the summary reconciliation")
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void recordSearch(Timer.Sample sample, SearchType type, int rows) {
+        sample.stop(searchTimers.get(type));
+        searchRows.get(type).record(rows);
+    }
+
+    public void recordSearchQueries(Timer.Sample sample, SearchType type) {
+        sample.stop(searchDbTimers.get(type));
+    }
+
+    public void recordCreate(Timer.Sample sample, int batteries, boolean success) {
+        sample.stop(success ? createSuccess : createFailure);
+        createBatteries.record(batteries);
+    }
+
+    public void recordReplay() {
+        createReplays.increment();
+    }
+
+    public void recordIngest(Timer.Sample sample, long accepted, long rejected) {
+        sample.stop(ingest);
+        ingestAccepted.increment(accepted);
+        ingestRejected.increment(rejected);
+    }
+
+    public void recordSummaryMismatches(int postcodes) {
+        summaryMismatches.increment(postcodes);
+    }
+
+    private static Timer.Builder latency(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram();
+    }
+}
@@ -0,0 +1,30 @@
+package com.rore_int.vpp.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// vpp.http.serialization timers of one wire format, one per response body type
+final class SerializationTimers {
+    private final MeterRegistry registry;
+    private final String format;
+    private final Map<Class<?>, Timer> timers = new ConcurrentHashMap<>();
+
+    SerializationTimers(MeterRegistry registry, String format) {
+        this.registry = registry;
+        this.format = format;
+    }
+
+    void record(Class<?> bodyType, long startNanos) {
+        timers.computeIfAbsent(bodyType, key -> Timer.builder("vpp.http.serialization")
+                        .description("Time spent writing response bodies")
+                        .tag("type", key.getSimpleName())
+                        .tag("format", format)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
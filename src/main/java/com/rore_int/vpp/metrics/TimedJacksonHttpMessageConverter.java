@@ -0,0 +1,34 @@
+package com.rore_int.vpp.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Replaces Spring Boot's JSON converter to time response serialization per body type, so search
+ * latency can be split into database time ({@code vpp.search.db}) and serialization time.
+ */
+@Component
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+    private final SerializationTimers timers;
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, MeterRegistry registry) {
+        super(objectMapper);
+        this.timers = new SerializationTimers(registry, "json");
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            timers.record(object.getClass(), start);
+        }
+    }
+}
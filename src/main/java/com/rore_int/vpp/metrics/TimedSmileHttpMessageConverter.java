@@ -0,0 +1,35 @@
+package com.rore_int.vpp.metrics;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Reads and writes {@code application/x-jackson-smile} bodies with the same Jackson settings as
+ * JSON, and times response serialization like {@link TimedJacksonHttpMessageConverter}.
+ */
+@Component
+public class TimedSmileHttpMessageConverter extends MappingJackson2SmileHttpMessageConverter {
+    private final SerializationTimers timers;
+
+    public TimedSmileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder, MeterRegistry registry) {
+        super(objectMapperBuilder.factory(new SmileFactory()).build());
+        this.timers = new SerializationTimers(registry, "smile");
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            timers.record(object.getClass(), start);
+        }
+    }
+}
@@ -1,21 +1,113 @@
 package com.rore_int.vpp.repository;
 
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryNameCapacity;
+import com.rore_int.vpp.dto.BatteryNameId;
+import com.rore_int.vpp.dto.PostcodeCapacityTotals;
+import com.rore_int.vpp.dto.PostcodeStatistics;
 import com.rore_int.vpp.entity.Battery;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface BatteryRepository extends JpaRepository<Battery, Long> {
-    @Query("SELECT b FROM Battery b WHERE b.postcode BETWEEN :minPostcode AND :maxPostcode " +
+public interface BatteryRepository extends JpaRepository<Battery, Long>, BatteryRepositoryCustom {
+    String POSTCODE_RANGE_AND_CAPACITY = "b.postcode BETWEEN :minPostcode AND :maxPostcode " +
             "AND (:minCapacity IS NULL OR b.capacity >= :minCapacity) " +
-            "AND (:maxCapacity IS NULL OR b.capacity <= :maxCapacity) " +
+            "AND (:maxCapacity IS NULL OR b.capacity <= :maxCapacity) ";
+
+    @Transactional(readOnly = true)
+    @Query("SELECT b.name FROM Battery b WHERE " + POSTCODE_RANGE_AND_CAPACITY +
             "ORDER BY b.name")
-    List<Battery> findByPostcodeRangeAndCapacity(
+    List<String> findNamesByPostcodeRangeAndCapacity(
+            @Param("minPostcode") String minPostcode,
+            @Param("maxPostcode") String maxPostcode,
+            @Param("minCapacity") Integer minCapacity,
+            @Param("maxCapacity") Integer maxCapacity
+    );
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.rore_int.vpp.dto.BatteryNameId(b.name, b.id) FROM Battery b WHERE " +
+            POSTCODE_RANGE_AND_CAPACITY + "ORDER BY b.name, b.id")
+    List<BatteryNameId> findFirstPageByPostcodeRangeAndCapacity(
+            @Param("minPostcode") String minPostcode,
+            @Param("maxPostcode") String maxPostcode,
+            @Param("minCapacity") Integer minCapacity,
+            @Param("maxCapacity") Integer maxCapacity,
+            Limit limit
+    );
+
+    // Keyset continuation: seeks past (afterName, afterId) on idx_batteries_name_id instead of using OFFSET
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.rore_int.vpp.dto.BatteryNameId(b.name, b.id) FROM Battery b WHERE " +
+            POSTCODE_RANGE_AND_CAPACITY + "AND (b.name, b.id) > (:afterName, :afterId) ORDER BY b.name, b.id")
+    List<BatteryNameId> findPageAfterByPostcodeRangeAndCapacity(
+            @Param("minPostcode") String minPostcode,
+            @Param("maxPostcode") String maxPostcode,
+            @Param("minCapacity") Integer minCapacity,
+            @Param("maxCapacity") Integer maxCapacity,
+            @Param("afterName") String afterName,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    // Must be consumed inside a transaction; rows are fetched from a server-side cursor in blocks
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.rore_int.vpp.dto.BatteryNameCapacity(b.name, b.capacity) FROM Battery b WHERE " +
+            POSTCODE_RANGE_AND_CAPACITY + "ORDER BY b.name")
+    Stream<BatteryNameCapacity> streamByPostcodeRangeAndCapacity(
+            @Param("minPostcode") String minPostcode,
+            @Param("maxPostcode") String maxPostcode,
+            @Param("minCapacity") Integer minCapacity,
+            @Param("maxCapacity") Integer maxCapacity
+    );
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.rore_int.vpp.dto.BatteryCapacityStats(COUNT(b), SUM(b.capacity), AVG(b.capacity)) " +
+            "FROM Battery b WHERE " + POSTCODE_RANGE_AND_CAPACITY)
+    BatteryCapacityStats aggregateByPostcodeRangeAndCapacity(
+            @Param("minPostcode") String minPostcode,
+            @Param("maxPostcode") String maxPostcode,
+            @Param("minCapacity") Integer minCapacity,
+            @Param("maxCapacity") Integer maxCapacity
+    );
+
+    // One row per postcode, in postcode order; must be consumed inside a transaction
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.rore_int.vpp.dto.PostcodeStatistics(b.postcode, COUNT(b), SUM(b.capacity), " +
+            "COUNT(b.capacity), MIN(b.capacity), MAX(b.capacity), PERCENTILE_DISC(0.5) WITHIN GROUP (ORDER BY b.capacity)) " +
+            "FROM Battery b WHERE " + POSTCODE_RANGE_AND_CAPACITY + "GROUP BY b.postcode ORDER BY b.postcode")
+    Stream<PostcodeStatistics> streamStatisticsByPostcode(
             @Param("minPostcode") String minPostcode,
             @Param("maxPostcode") String maxPostcode,
             @Param("minCapacity") Integer minCapacity,
             @Param("maxCapacity") Integer maxCapacity
     );
-}
\ No newline at end of file
+
+    // As above without the median, which needs a sort per postcode
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.rore_int.vpp.dto.PostcodeStatistics(b.postcode, COUNT(b), SUM(b.capacity), " +
+            "COUNT(b.capacity), MIN(b.capacity), MAX(b.capacity)) " +
+            "FROM Battery b WHERE " + POSTCODE_RANGE_AND_CAPACITY + "GROUP BY b.postcode ORDER BY b.postcode")
+    Stream<PostcodeStatistics> streamTotalsByPostcode(
+            @Param("minPostcode") String minPostcode,
+            @Param("maxPostcode") String maxPostcode,
+            @Param("minCapacity") Integer minCapacity,
+            @Param("maxCapacity") Integer maxCapacity
+    );
+
+    // Not read-only, so it runs on the primary: the capacity index must start from every committed row
+    @Query("SELECT new com.rore_int.vpp.dto.PostcodeCapacityTotals(b.postcode, COUNT(b), SUM(b.capacity), " +
+            "COUNT(b.capacity)) " +
+            "FROM Battery b GROUP BY b.postcode")
+    List<PostcodeCapacityTotals> sumCapacityByPostcode();
+}
@@ -0,0 +1,16 @@
+package com.rore_int.vpp.repository;
+
+import com.rore_int.vpp.entity.Battery;
+
+import java.util.List;
+
+public interface BatteryRepositoryCustom {
+
+    /**
+     * Inserts the batteries whose (name, postcode) is not registered yet, in one statement.
+     * Every battery is given the id of its row; a battery that already existed also takes the
+     * stored capacity, since existing rows are never rewritten. Returns the inserted batteries.
+     * Requires the unique index from {@code db/natural-key}.
+     */
+    List<Battery> insertIfAbsent(List<Battery> batteries);
+}
@@ -0,0 +1,118 @@
+package com.rore_int.vpp.repository;
+
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.validation.Postcodes;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Picked up by Spring Data as the implementation of BatteryRepositoryCustom
+class BatteryRepositoryImpl implements BatteryRepositoryCustom {
+    // Each row takes its own nextval, so it uses one of the pooled sequence's blocks of 50 ids;
+    // Hibernate never hands out ids from a block it did not fetch itself
+    private static final String INSERT_IF_ABSENT = "INSERT INTO batteries (id, name, postcode, capacity) "
+            + "SELECT nextval('batteries_seq'), t.name, t.postcode, t.capacity "
+            + "FROM unnest(?, ?, ?) AS t(name, postcode, capacity) "
+            + "ON CONFLICT (name, postcode) DO NOTHING "
+            + "RETURNING id, name, postcode";
+    private static final String FIND_EXISTING = "SELECT b.id, b.name, b.postcode, b.capacity FROM batteries b "
+            + "JOIN unnest(?, ?) AS t(name, postcode) ON b.name = t.name AND b.postcode = t.postcode";
+
+    // Concurrent inserts lock unique index entries in row order, so every batch takes them in the same order
+    private static final Comparator<Battery> INSERT_ORDER = Comparator.comparing(Battery::getName)
+            .thenComparingInt(battery -> Postcodes.parse(battery.getPostcode()));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    BatteryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Battery> insertIfAbsent(List<Battery> batteries) {
+        // The sort is stable, so a key repeated within the request is still inserted by its first occurrence
+        List<Battery> sorted = batteries.stream().sorted(INSERT_ORDER).toList();
+        Map<NaturalKey, Long> insertedIds = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_IF_ABSENT);
+            bindKeys(connection, statement, sorted);
+            Integer[] capacities = sorted.stream().map(Battery::getCapacity).toArray(Integer[]::new);
+            statement.setArray(3, connection.createArrayOf("integer", capacities));
+            return statement;
+        }, resultSet -> {
+            insertedIds.put(new NaturalKey(resultSet.getString(2), resultSet.getShort(3)), resultSet.getLong(1));
+        });
+
+        // Rows that conflicted, including with a concurrent insert, are read in a new statement so
+        // that rows committed after the INSERT's snapshot are visible
+        Map<NaturalKey, Battery> existing = new HashMap<>();
+        if (insertedIds.size() < batteries.size()) {
+            List<Battery> missing = batteries.stream()
+                    .filter(battery -> !insertedIds.containsKey(NaturalKey.of(battery)))
+                    .toList();
+            if (!missing.isEmpty()) {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(FIND_EXISTING);
+                    bindKeys(connection, statement, missing);
+                    return statement;
+                }, resultSet -> {
+                    Battery row = new Battery();
+                    row.setId(resultSet.getLong(1));
+                    row.setName(resultSet.getString(2));
+                    row.setCapacity(resultSet.getInt(4));
+                    existing.put(new NaturalKey(row.getName(), resultSet.getShort(3)), row);
+                });
+            }
+        }
+
+        List<Battery> inserted = new ArrayList<>(insertedIds.size());
+        Map<NaturalKey, Battery> insertedByKey = new HashMap<>();
+        for (Battery battery : batteries) {
+            NaturalKey key = NaturalKey.of(battery);
+            Long id = insertedIds.get(key);
+            if (id != null) {
+                battery.setId(id);
+                // A key repeated within the request was inserted once, by its first occurrence
+                Battery first = insertedByKey.putIfAbsent(key, battery);
+                if (first == null) {
+                    inserted.add(battery);
+                } else {
+                    battery.setCapacity(first.getCapacity());
+                }
+            } else {
+                Battery row = existing.get(key);
+                if (row == null) {
+                    throw new IllegalStateException("Battery " + battery.getName() + " was neither inserted nor found");
+                }
+                battery.setId(row.getId());
+                battery.setCapacity(row.getCapacity());
+            }
+        }
+        return inserted;
+    }
+
+    private static void bindKeys(Connection connection, PreparedStatement statement, List<Battery> batteries)
+            throws SQLException {
+        String[] names = new String[batteries.size()];
+        Short[] postcodes = new Short[batteries.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = batteries.get(i).getName();
+            postcodes[i] = (short) Postcodes.parse(batteries.get(i).getPostcode());
+        }
+        statement.setArray(1, connection.createArrayOf("varchar", names));
+        statement.setArray(2, connection.createArrayOf("smallint", postcodes));
+    }
+
+    private record NaturalKey(String name, short postcode) {
+        static NaturalKey of(Battery battery) {
+            return new NaturalKey(battery.getName(), (short) Postcodes.parse(battery.getPostcode()));
+        }
+    }
+}
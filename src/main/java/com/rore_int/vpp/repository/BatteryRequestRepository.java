@@ -0,0 +1,67 @@
+package com.rore_int.vpp.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Idempotency keys of create requests, with a hash of each request and the ids of the batteries
+ * it created. Uses plain JDBC because claiming a key needs {@code INSERT ... ON CONFLICT} and the
+ * ids are stored as a {@code BIGINT[]}. Must be called inside the transaction that saves the
+ * batteries.
+ */
+@Repository
+public class BatteryRequestRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public BatteryRequestRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns true if this transaction now owns the key. A concurrent claim of the same key waits
+     * on the primary key until the owner finishes, then returns false if the owner committed.
+     */
+    public boolean claim(String idempotencyKey, byte[] requestHash) {
+        return jdbcTemplate.update("INSERT INTO battery_requests (idempotency_key, battery_ids, request_hash) "
+                + "VALUES (?, '{}', ?) ON CONFLICT DO NOTHING", idempotencyKey, requestHash) == 1;
+    }
+
+    public void complete(String idempotencyKey, List<Long> batteryIds) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE battery_requests SET battery_ids = ? WHERE idempotency_key = ?");
+            statement.setArray(1, connection.createArrayOf("bigint", batteryIds.toArray()));
+            statement.setString(2, idempotencyKey);
+            return statement;
+        });
+    }
+
+    public Optional<StoredRequest> findRequest(String idempotencyKey) {
+        List<StoredRequest> rows = jdbcTemplate.query(
+                "SELECT battery_ids, request_hash FROM battery_requests WHERE idempotency_key = ?",
+                (resultSet, rowNum) -> {
+                    Array ids = resultSet.getArray(1);
+                    return new StoredRequest(Arrays.asList((Long[]) ids.getArray()), resultSet.getBytes(2));
+                },
+                idempotencyKey);
+        return rows.stream().findFirst();
+    }
+
+    public int deleteCreatedBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM battery_requests WHERE created_at < ?", Timestamp.from(cutoff));
+    }
+
+    /**
+     * {@code requestHash} is null for keys claimed before request hashes were stored.
+     */
+    public record StoredRequest(List<Long> batteryIds, byte[] requestHash) {
+    }
+}
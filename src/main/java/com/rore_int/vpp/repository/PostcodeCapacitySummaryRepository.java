@@ -0,0 +1,108 @@
+package com.rore_int.vpp.repository;
+
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.PostcodeStatistics;
+import com.rore_int.vpp.validation.Postcodes;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * The {@code postcode_capacity_summary} table: battery count and capacity totals per postcode,
+ * kept current by triggers on {@code batteries} (see V7 to V10). Inserts append to a delta table
+ * that {@link #fold()} merges into the summary; reads go through the
+ * {@code postcode_capacity_summary_current} view, which adds pending deltas. Uses plain JDBC
+ * because neither table has an entity.
+ */
+@Repository
+public class PostcodeCapacitySummaryRepository {
+    private static final String AGGREGATE_BATTERIES = "SELECT postcode, COUNT(*) AS battery_count, "
+            + "COALESCE(SUM(capacity), 0) AS total_capacity, MIN(capacity) AS min_capacity, "
+            + "MAX(capacity) AS max_capacity, COUNT(capacity) AS capacity_count FROM batteries GROUP BY postcode";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostcodeCapacitySummaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Averages over batteries with a capacity, like AVG(capacity) on the batteries table
+    @Transactional(readOnly = true)
+    public BatteryCapacityStats aggregateByPostcodeRange(String minPostcode, String maxPostcode) {
+        return jdbcTemplate.queryForObject(
+                "SELECT SUM(battery_count), SUM(total_capacity), SUM(capacity_count) "
+                        + "FROM postcode_capacity_summary_current WHERE postcode BETWEEN ? AND ?",
+                (resultSet, rowNum) -> {
+                    long count = resultSet.getLong(1);
+                    long totalCapacity = resultSet.getLong(2);
+                    long capacityCount = resultSet.getLong(3);
+                    return new BatteryCapacityStats(count, totalCapacity,
+                            capacityCount == 0 ? null : (double) totalCapacity / capacityCount);
+                },
+                Postcodes.parse(minPostcode), Postcodes.parse(maxPostcode));
+    }
+
+    // In postcode order, without medians, which cannot be maintained incrementally
+    @Transactional(readOnly = true)
+    public List<PostcodeStatistics> findByPostcodeRange(String minPostcode, String maxPostcode) {
+        return jdbcTemplate.query(
+                "SELECT postcode, battery_count, total_capacity, capacity_count, min_capacity, max_capacity "
+                        + "FROM postcode_capacity_summary_current WHERE postcode BETWEEN ? AND ? ORDER BY postcode",
+                (resultSet, rowNum) -> new PostcodeStatistics(
+                        Postcodes.format(resultSet.getInt("postcode")),
+                        resultSet.getLong("battery_count"),
+                        resultSet.getLong("total_capacity"),
+                        resultSet.getLong("capacity_count"),
+                        resultSet.getObject("min_capacity", Integer.class),
+                        resultSet.getObject("max_capacity", Integer.class)),
+                Postcodes.parse(minPostcode), Postcodes.parse(maxPostcode));
+    }
+
+    /**
+     * Counts postcodes whose summary row differs from an aggregation of {@code batteries}. Both
+     * are read from one snapshot, and the triggers commit with the batteries they summarise, so
+     * concurrent writes never show up as differences. Runs on the primary.
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int countMismatches() {
+        Integer mismatches = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (" + AGGREGATE_BATTERIES + ") actual "
+                        + "FULL JOIN postcode_capacity_summary_current summary USING (postcode) "
+                        + "WHERE actual.battery_count IS DISTINCT FROM summary.battery_count "
+                        + "OR actual.total_capacity IS DISTINCT FROM summary.total_capacity "
+                        + "OR actual.min_capacity IS DISTINCT FROM summary.min_capacity "
+                        + "OR actual.max_capacity IS DISTINCT FROM summary.max_capacity "
+                        + "OR actual.capacity_count IS DISTINCT FROM summary.capacity_count",
+                Integer.class);
+        return mismatches == null ? 0 : mismatches;
+    }
+
+    /**
+     * Merges the deltas committed so far into the summary and returns the number of postcodes
+     * updated. Each postcode's row is locked in postcode order, so concurrent folds cannot
+     * deadlock, and battery writes never wait for a fold.
+     */
+    @Transactional
+    public int fold() {
+        Integer folded = jdbcTemplate.queryForObject("SELECT postcode_capacity_summary_fold()", Integer.class);
+        return folded == null ? 0 : folded;
+    }
+
+    /**
+     * Replaces the summary with a fresh aggregation of {@code batteries}. Battery writes wait
+     * until it commits, which takes about as long as one full scan of the postcode index.
+     */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.execute("LOCK TABLE batteries IN SHARE MODE");
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('postcode_capacity_summary'))");
+        jdbcTemplate.update("DELETE FROM postcode_capacity_summary_delta");
+        jdbcTemplate.update("DELETE FROM postcode_capacity_summary");
+        return jdbcTemplate.update("INSERT INTO postcode_capacity_summary "
+                + "(postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count) "
+                + AGGREGATE_BATTERIES);
+    }
+}
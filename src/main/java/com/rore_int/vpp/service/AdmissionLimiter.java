@@ -0,0 +1,200 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.exception.OverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit in front of creates and searches. Requests over the limit are shed
+ * with an {@link OverloadedException} instead of queueing behind the executor and the connection
+ * pool. The limit follows AIMD: it grows by one per limit's worth of fast completions while it is
+ * in use, and shrinks by {@code backoff-ratio} when a request takes longer than
+ * {@code latency-target} or is rejected by the executor. Large requests, i.e. creates of at least
+ * {@code large-batch-size} batteries and streamed ingests, are only admitted while in-flight
+ * requests fill less than {@code large-share} of the limit, so they are shed first and small
+ * requests keep the remaining headroom. Their latency grows with their size, so only their
+ * rejections, not their latency, lower the limit.
+ */
+@Component
+public class AdmissionLimiter {
+
+    public enum Priority {
+        SMALL, LARGE;
+
+        private String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoffRatio;
+    private final int largeBatchSize;
+    private final double largeShare;
+    private final long retryAfterSeconds;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Priority, Counter> shed = new EnumMap<>(Priority.class);
+    // Fractional so that additive increase can be spread over many completions; guarded by this
+    private double limit;
+    private long lastDecreaseNanos;
+    // Read without locking on every admission
+    private volatile int currentLimit;
+
+    public AdmissionLimiter(MeterRegistry meterRegistry,
+                            @Value("${vpp.admission.enabled:true}") boolean enabled,
+                            @Value("${vpp.admission.initial-limit:20}") int initialLimit,
+                            @Value("${vpp.admission.min-limit:4}") int minLimit,
+                            @Value("${vpp.admission.max-limit:200}") int maxLimit,
+                            @Value("${vpp.admission.latency-target:250ms}") Duration latencyTarget,
+                            @Value("${vpp.admission.backoff-ratio:0.9}") double backoffRatio,
+                            @Value("${vpp.admission.large-batch-size:1000}") int largeBatchSize,
+                            @Value("${vpp.admission.large-share:0.5}") double largeShare,
+                            @Value("${vpp.admission.retry-after:1s}") Duration retryAfter) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("vpp.admission limits must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.largeBatchSize = largeBatchSize;
+        this.largeShare = largeShare;
+        // Retry-After is in whole seconds
+        this.retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        this.limit = initialLimit;
+        this.currentLimit = initialLimit;
+        this.lastDecreaseNanos = System.nanoTime() - latencyTargetNanos;
+        Gauge.builder("vpp.admission.limit", this, AdmissionLimiter::getLimit)
+                .description("Current adaptive concurrency limit for creates and searches")
+                .register(meterRegistry);
+        Gauge.builder("vpp.admission.inflight", inFlight, AtomicInteger::get)
+                .description("Creates and searches currently holding an admission permit")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            shed.put(priority, Counter.builder("vpp.admission.shed")
+                    .description("Requests rejected with 429 because the concurrency limit was reached")
+                    .tag("priority", priority.tag())
+                    .register(meterRegistry));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Priority priorityOf(int batteries) {
+        return batteries >= largeBatchSize ? Priority.LARGE : Priority.SMALL;
+    }
+
+    /**
+     * Takes a permit, which the caller must release once the request's work is done, or throws an
+     * {@link OverloadedException} when the request's priority has no headroom left.
+     */
+    public Permit acquire(Priority priority) {
+        if (!enabled) {
+            return new Permit(priority, false);
+        }
+        int allowed = allowed(priority);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                throw shed(priority);
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(priority, true);
+            }
+        }
+    }
+
+    /**
+     * Sheds a request that {@link #acquire} would shed right now, without taking a permit. Lets a
+     * request be turned away before its body is read; it must still acquire a permit afterwards.
+     */
+    public void checkHeadroom(Priority priority) {
+        if (enabled && inFlight.get() >= allowed(priority)) {
+            throw shed(priority);
+        }
+    }
+
+    private int allowed(Priority priority) {
+        return priority == Priority.LARGE ? Math.max(1, (int) (currentLimit * largeShare)) : currentLimit;
+    }
+
+    private OverloadedException shed(Priority priority) {
+        shed.get(priority).increment();
+        return overloaded("Too many concurrent requests, retry later");
+    }
+
+    public OverloadedException overloaded(String message) {
+        return new OverloadedException(message, retryAfterSeconds);
+    }
+
+    // Visible for tests, which supply their own latencies and clock
+    synchronized void onComplete(Priority priority, long latencyNanos, boolean rejected, int inFlightBefore, long nowNanos) {
+        boolean slow = priority == Priority.SMALL && latencyNanos > latencyTargetNanos;
+        if (rejected || slow) {
+            // A burst of slow responses is one congestion signal, so back off at most once per target interval
+            if (nowNanos - lastDecreaseNanos >= latencyTargetNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = nowNanos;
+            }
+        } else if (priority == Priority.SMALL && inFlightBefore * 2 >= limit) {
+            // Only grow a limit that is being used, otherwise an idle period would inflate it
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        currentLimit = (int) limit;
+    }
+
+    public final class Permit {
+        private final Priority priority;
+        private final boolean counted;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Priority priority, boolean counted) {
+            this.priority = priority;
+            this.counted = counted;
+        }
+
+        public void release() {
+            release(false);
+        }
+
+        /**
+         * Releases the permit of a request the executor rejected, which lowers the limit whatever
+         * the request's priority.
+         */
+        public void releaseRejected() {
+            release(true);
+        }
+
+        private void release(boolean rejected) {
+            if (!counted || !released.compareAndSet(false, true)) {
+                return;
+            }
+            int inFlightBefore = inFlight.getAndDecrement();
+            long now = System.nanoTime();
+            onComplete(priority, now - startNanos, rejected, inFlightBefore, now);
+        }
+    }
+}
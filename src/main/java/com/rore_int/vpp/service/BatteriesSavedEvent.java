@@ -0,0 +1,15 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.entity.Battery;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Published after a batch of batteries has been committed, so in-memory views of the
+ * table (index, caches) can be brought up to date.
+ */
+@Data
+public class BatteriesSavedEvent {
+    private final List<Battery> batteries;
+}
@@ -0,0 +1,165 @@
+package com.rore_int.vpp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.rore_int.vpp.dto.BatteryIngestSummary;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.exception.ValidationException;
+import com.rore_int.vpp.metrics.BatteryMetrics;
+import com.rore_int.vpp.repository.BatteryRepository;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests newline-delimited JSON batteries without materialising the whole payload.
+ * Lines are parsed and validated one at a time and valid batteries are committed in
+ * fixed-size chunks, so memory use depends on the chunk size rather than the input size.
+ * With {@code vpp.create.natural-key.enabled}, a battery whose (name, postcode) is already stored
+ * is counted as a duplicate instead of failing its chunk.
+ */
+@Service
+public class BatteryIngestService {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryIngestService.class);
+    private final BatteryRepository batteryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectReader batteryReader;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxReportedRejections;
+    private final BatteryMetrics batteryMetrics;
+    private final AdmissionLimiter admissionLimiter;
+    private final IdempotentBatteryWriter idempotentBatteryWriter;
+
+    public BatteryIngestService(BatteryRepository batteryRepository, ApplicationEventPublisher eventPublisher,
+                                ObjectMapper objectMapper, Validator validator, BatteryMetrics batteryMetrics,
+                                AdmissionLimiter admissionLimiter, IdempotentBatteryWriter idempotentBatteryWriter,
+                                @Value("${vpp.ingest.chunk-size:1000}") int chunkSize,
+                                @Value("${vpp.ingest.max-reported-rejections:1000}") int maxReportedRejections) {
+        this.batteryRepository = batteryRepository;
+        this.eventPublisher = eventPublisher;
+        this.batteryReader = objectMapper.readerFor(Battery.class);
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxReportedRejections = maxReportedRejections;
+        this.batteryMetrics = batteryMetrics;
+        this.admissionLimiter = admissionLimiter;
+        this.idempotentBatteryWriter = idempotentBatteryWriter;
+    }
+
+    public BatteryIngestSummary ingest(InputStream input) {
+        if (input == null) {
+            throw new ValidationException("Battery stream cannot be null");
+        }
+        // A stream may hold any number of batteries, so it is always admitted as a large request
+        AdmissionLimiter.Permit permit = admissionLimiter.acquire(AdmissionLimiter.Priority.LARGE);
+        try {
+            return ingestLines(input);
+        } finally {
+            permit.release();
+        }
+    }
+
+    private BatteryIngestSummary ingestLines(InputStream input) {
+        Timer.Sample sample = batteryMetrics.start();
+        BatteryIngestSummary summary = new BatteryIngestSummary();
+        List<Battery> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                Battery battery = parse(line, lineNumber, summary);
+                if (battery == null) {
+                    continue;
+                }
+                chunk.add(battery);
+                if (chunk.size() == chunkSize) {
+                    saveChunk(chunk, summary);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read battery stream at line {}: {}", lineNumber, e.getMessage(), e);
+            throw new ValidationException("Failed to read battery stream at line " + lineNumber);
+        }
+        if (!chunk.isEmpty()) {
+            saveChunk(chunk, summary);
+        }
+        logger.info("Ingested battery stream: {} accepted, {} duplicates, {} rejected over {} lines",
+                summary.getAccepted(), summary.getDuplicates(), summary.getRejected(), lineNumber);
+        batteryMetrics.recordIngest(sample, summary.getAccepted(), summary.getRejected());
+        return summary;
+    }
+
+    private Battery parse(String line, long lineNumber, BatteryIngestSummary summary) {
+        Battery battery;
+        try {
+            battery = batteryReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            reject(summary, lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+            return null;
+        }
+        Set<ConstraintViolation<Battery>> violations = validator.validate(battery);
+        if (!violations.isEmpty()) {
+            reject(summary, lineNumber, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            return null;
+        }
+        // Ids are always assigned by the database
+        battery.setId(null);
+        return battery;
+    }
+
+    private void reject(BatteryIngestSummary summary, long lineNumber, String reason) {
+        summary.setRejected(summary.getRejected() + 1);
+        if (summary.getRejections().size() < maxReportedRejections) {
+            summary.getRejections().add(new BatteryIngestSummary.Rejection(lineNumber, reason));
+        }
+    }
+
+    private void saveChunk(List<Battery> chunk, BatteryIngestSummary summary) {
+        List<Battery> inserted;
+        try {
+            // Each chunk is written in its own transaction, so every chunk is committed independently
+            if (idempotentBatteryWriter.isNaturalKeyEnabled()) {
+                inserted = idempotentBatteryWriter.write(null, chunk).inserted();
+            } else {
+                inserted = batteryRepository.saveAll(chunk);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Failed to save battery chunk after {} accepted batteries: {}",
+                    summary.getAccepted(), e.getMessage(), e);
+            throw new DatabaseException("Failed to save batteries after " + summary.getAccepted()
+                    + " were committed", e);
+        }
+        if (!inserted.isEmpty()) {
+            eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(inserted)));
+        }
+        summary.setAccepted(summary.getAccepted() + inserted.size());
+        summary.setDuplicates(summary.getDuplicates() + chunk.size() - inserted.size());
+        chunk.clear();
+    }
+}
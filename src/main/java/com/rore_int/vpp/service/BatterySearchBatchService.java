@@ -0,0 +1,163 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.BatterySearchQuery;
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.exception.ErrorResponse;
+import com.rore_int.vpp.exception.OverloadedException;
+import com.rore_int.vpp.exception.ValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers several range searches in one request. Each distinct query goes through
+ * {@link BatteryService#searchBatteriesByPostcodeRange}, so the search cache, capacity index and
+ * summary table apply per query. Queries run on at most {@code parallelism} workers, the calling
+ * thread being one of them, so a batch never holds more than that many connections at once.
+ * Helpers run on the dedicated search executor, not the create executor. Every slot of the
+ * result gets its own response, even when identical queries share one search. A query that is
+ * shed or hits a database error gets an error entry in its slot, and the rest of the batch is
+ * still answered.
+ */
+@Service
+public class BatterySearchBatchService {
+    private static final Logger logger = LoggerFactory.getLogger(BatterySearchBatchService.class);
+    private final BatteryService batteryService;
+    private final Executor searchExecutor;
+    private final int maxQueries;
+    private final int parallelism;
+
+    public BatterySearchBatchService(BatteryService batteryService, @Qualifier("searchExecutor") Executor searchExecutor,
+                                     @Value("${vpp.search.batch.max-queries:100}") int maxQueries,
+                                     @Value("${vpp.search.batch.parallelism:4}") int parallelism) {
+        this.batteryService = batteryService;
+        this.searchExecutor = searchExecutor;
+        this.maxQueries = maxQueries;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns one response per query, in query order. Every query is validated before any runs,
+     * so an invalid batch fails as a whole with the offending query's index in the message. If
+     * no query could be answered, the first query's error is thrown, as for a single search.
+     */
+    public List<BatterySearchResponse> search(List<BatterySearchQuery> queries, boolean includeNames) {
+        if (queries == null || queries.isEmpty()) {
+            throw new ValidationException("Query list cannot be null or empty");
+        }
+        if (queries.size() > maxQueries) {
+            throw new ValidationException("A batch can contain at most " + maxQueries + " queries");
+        }
+        // Identical windows are searched once and share a response
+        Map<BatterySearchQuery, Integer> distinct = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            BatterySearchQuery query = queries.get(i);
+            if (query == null) {
+                throw new ValidationException("queries[" + i + "] cannot be null");
+            }
+            try {
+                batteryService.validateSearchParameters(query.getMinPostcode(), query.getMaxPostcode(),
+                        query.getMinCapacity(), query.getMaxCapacity());
+            } catch (ValidationException e) {
+                throw new ValidationException("queries[" + i + "]: " + e.getMessage());
+            }
+            distinct.putIfAbsent(query, distinct.size());
+        }
+        logger.debug("Searching {} postcode ranges ({} distinct)", queries.size(), distinct.size());
+
+        List<BatterySearchQuery> work = new ArrayList<>(distinct.keySet());
+        BatterySearchResponse[] results = runAll(work, includeNames);
+        List<BatterySearchResponse> responses = new ArrayList<>(queries.size());
+        boolean[] used = new boolean[results.length];
+        for (BatterySearchQuery query : queries) {
+            int index = distinct.get(query);
+            // Duplicates get copies, so a caller changing one slot cannot change the others
+            responses.add(used[index] ? copy(results[index]) : results[index]);
+            used[index] = true;
+        }
+        return responses;
+    }
+
+    // Workers take the next unclaimed query until none are left, so slow queries do not stall a lane
+    private BatterySearchResponse[] runAll(List<BatterySearchQuery> work, boolean includeNames) {
+        BatterySearchResponse[] results = new BatterySearchResponse[work.size()];
+        RuntimeException[] failures = new RuntimeException[work.size()];
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < work.size()) {
+                BatterySearchQuery query = work.get(index);
+                try {
+                    results[index] = batteryService.searchBatteriesByPostcodeRange(query.getMinPostcode(),
+                            query.getMaxPostcode(), query.getMinCapacity(), query.getMaxCapacity(), includeNames);
+                } catch (OverloadedException e) {
+                    failures[index] = e;
+                    results[index] = failed(new ErrorResponse("TOO_MANY_REQUESTS", e.getMessage()));
+                } catch (DatabaseException e) {
+                    logger.error("Batch search of {} to {} failed: {}", query.getMinPostcode(),
+                            query.getMaxPostcode(), e.getMessage(), e);
+                    failures[index] = e;
+                    results[index] = failed(new ErrorResponse("DATABASE_ERROR",
+                            "An error occurred while accessing the database"));
+                } catch (RuntimeException e) {
+                    // Anything else is a bug rather than a transient failure, so stop the other workers too
+                    next.set(work.size());
+                    throw e;
+                }
+            }
+        };
+        int helpers = Math.min(parallelism, work.size()) - 1;
+        List<CompletableFuture<Void>> running = new ArrayList<>(helpers);
+        for (int i = 0; i < helpers; i++) {
+            try {
+                running.add(CompletableFuture.runAsync(worker, searchExecutor));
+            } catch (RejectedExecutionException e) {
+                // The executor is saturated; the calling thread picks up the remaining queries
+                break;
+            }
+        }
+        worker.run();
+        try {
+            CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        if (Arrays.stream(failures).allMatch(Objects::nonNull)) {
+            throw failures[0];
+        }
+        return results;
+    }
+
+    private static BatterySearchResponse failed(ErrorResponse error) {
+        BatterySearchResponse response = new BatterySearchResponse();
+        response.setError(error);
+        return response;
+    }
+
+    private static BatterySearchResponse copy(BatterySearchResponse response) {
+        BatterySearchResponse copy = new BatterySearchResponse();
+        copy.setBatteryNames(response.getBatteryNames() == null ? null : new ArrayList<>(response.getBatteryNames()));
+        copy.setTotalCapacity(response.getTotalCapacity());
+        copy.setAverageCapacity(response.getAverageCapacity());
+        copy.setError(response.getError());
+        return copy;
+    }
+}
@@ -0,0 +1,108 @@
+package com.rore_int.vpp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.dto.SearchCacheStats;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.validation.Postcodes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caches search responses per (postcode range, capacity filters). Entries are weighed by the
+ * number of names they hold and expire after a TTL; a commit removes exactly the entries whose
+ * postcode range contains one of the saved batteries. The TTL bounds staleness from writes made
+ * by other instances.
+ */
+@Component
+public class BatterySearchCache {
+    private final boolean enabled;
+    private final Cache<SearchKey, BatterySearchResponse> cache;
+    // Bumped before every invalidation so a search that overlapped a commit is not cached
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder invalidations = new LongAdder();
+
+    public BatterySearchCache(@Value("${vpp.search.cache.enabled:true}") boolean enabled,
+                              @Value("${vpp.search.cache.max-weight:1000000}") long maxWeight,
+                              @Value("${vpp.search.cache.ttl:30s}") Duration ttl) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((SearchKey key, BatterySearchResponse response) ->
+                        1 + (response.getBatteryNames() == null ? 0 : response.getBatteryNames().size()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public BatterySearchResponse get(String minPostcode, String maxPostcode, Integer minCapacity, Integer maxCapacity,
+                                     boolean includeNames, Supplier<BatterySearchResponse> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        SearchKey key = new SearchKey(Postcodes.parse(minPostcode), Postcodes.parse(maxPostcode),
+                minCapacity, maxCapacity, includeNames);
+        BatterySearchResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long observedGeneration = generation.get();
+        BatterySearchResponse response = loader.get();
+        cache.asMap().compute(key, (k, current) -> generation.get() == observedGeneration ? response : current);
+        return response;
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onBatteriesSaved(BatteriesSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        int[] postcodes = event.getBatteries().stream()
+                .map(Battery::getPostcode)
+                .mapToInt(Postcodes::parse)
+                .sorted()
+                .distinct()
+                .toArray();
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> {
+            boolean affected = containsAny(postcodes, key.minPostcode(), key.maxPostcode());
+            if (affected) {
+                invalidations.increment();
+            }
+            return affected;
+        });
+    }
+
+    public SearchCacheStats stats() {
+        // Apply pending evictions so the reported size is current
+        cache.cleanUp();
+        CacheStats stats = cache.stats();
+        return new SearchCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                invalidations.sum(), cache.estimatedSize());
+    }
+
+    // True if any of the sorted postcodes lies within [min, max]
+    private static boolean containsAny(int[] sortedPostcodes, int min, int max) {
+        int index = Arrays.binarySearch(sortedPostcodes, min);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < sortedPostcodes.length && sortedPostcodes[index] <= max;
+    }
+
+    private record SearchKey(int minPostcode, int maxPostcode, Integer minCapacity, Integer maxCapacity,
+                             boolean includeNames) {
+    }
+}
@@ -1,42 +1,191 @@
 package com.rore_int.vpp.service;
 
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryChunkedCreateResponse;
+import com.rore_int.vpp.dto.BatteryNameCapacity;
+import com.rore_int.vpp.dto.BatteryNameId;
+import com.rore_int.vpp.dto.BatteryNamePage;
 import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.dto.BatteryStatisticsResponse;
+import com.rore_int.vpp.dto.PostcodeStatistics;
+import com.rore_int.vpp.dto.SearchCacheStats;
 import com.rore_int.vpp.entity.Battery;
 import com.rore_int.vpp.exception.DatabaseException;
 import com.rore_int.vpp.exception.ValidationException;
+import com.rore_int.vpp.logging.LogSampler;
+import com.rore_int.vpp.metrics.BatteryMetrics;
+import com.rore_int.vpp.metrics.BatteryMetrics.SearchType;
 import com.rore_int.vpp.repository.BatteryRepository;
+import com.rore_int.vpp.validation.Postcodes;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class BatteryService {
     private static final Logger logger = LoggerFactory.getLogger(BatteryService.class);
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    static final int POSTCODE_DIGITS = 4;
     private final BatteryRepository batteryRepository;
     private final Executor taskExecutor;
+    private final PostcodeCapacityIndex postcodeCapacityIndex;
+    private final BatterySearchCache batterySearchCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BatteryWriteCoalescer batteryWriteCoalescer;
+    private final BatteryMetrics batteryMetrics;
+    private final LogSampler logSampler;
+    private final IdempotentBatteryWriter idempotentBatteryWriter;
+    private final PostcodeCapacitySummary postcodeCapacitySummary;
+    private final AdmissionLimiter admissionLimiter;
+    private final ChunkedBatteryWriter chunkedBatteryWriter;
+    private final TransactionTemplate searchTransaction;
 
     @Autowired
-    public BatteryService(BatteryRepository batteryRepository, Executor taskExecutor) {
+    public BatteryService(BatteryRepository batteryRepository, Executor taskExecutor,
+                          PostcodeCapacityIndex postcodeCapacityIndex, BatterySearchCache batterySearchCache,
+                          ApplicationEventPublisher eventPublisher, BatteryWriteCoalescer batteryWriteCoalescer,
+                          BatteryMetrics batteryMetrics, LogSampler logSampler,
+                          IdempotentBatteryWriter idempotentBatteryWriter,
+                          PostcodeCapacitySummary postcodeCapacitySummary, AdmissionLimiter admissionLimiter,
+                          ChunkedBatteryWriter chunkedBatteryWriter, PlatformTransactionManager transactionManager) {
         this.batteryRepository = batteryRepository;
         this.taskExecutor = taskExecutor;
+        this.postcodeCapacityIndex = postcodeCapacityIndex;
+        this.batterySearchCache = batterySearchCache;
+        this.eventPublisher = eventPublisher;
+        this.batteryWriteCoalescer = batteryWriteCoalescer;
+        this.batteryMetrics = batteryMetrics;
+        this.logSampler = logSampler;
+        this.idempotentBatteryWriter = idempotentBatteryWriter;
+        this.postcodeCapacitySummary = postcodeCapacitySummary;
+        this.admissionLimiter = admissionLimiter;
+        this.chunkedBatteryWriter = chunkedBatteryWriter;
+        // Totals and names are read from one snapshot, so they agree under concurrent writes
+        this.searchTransaction = new TransactionTemplate(transactionManager);
+        this.searchTransaction.setReadOnly(true);
+        this.searchTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
     }
 
     public CompletableFuture<List<Battery>> createBatteries(List<Battery> batteries) {
-        logger.info("Creating {} batteries asynchronously", batteries.size());
+        return createBatteries(batteries, null);
+    }
+
+    /**
+     * Saves the batteries asynchronously. A request repeated with the same {@code idempotencyKey}
+     * returns the batteries the first one created instead of inserting them again. Keyed requests
+     * and natural-key inserts run in their own transaction rather than being coalesced. Very large
+     * unkeyed requests are flushed chunk by chunk, still in one transaction. Throws
+     * {@link com.rore_int.vpp.exception.OverloadedException} when the request is shed, either by
+     * the admission limit or because the write executor's queue is full.
+     */
+    public CompletableFuture<List<Battery>> createBatteries(List<Battery> batteries, String idempotencyKey) {
+        if (batteries == null || batteries.isEmpty()) {
+            throw new ValidationException("Battery list cannot be null or empty");
+        }
+        logger.debug("Creating {} batteries asynchronously", batteries.size());
+        if (idempotencyKey != null
+                && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new ValidationException("Idempotency-Key must be between 1 and "
+                    + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        return admitWrite(batteries, () -> {
+            if (idempotencyKey != null || idempotentBatteryWriter.isNaturalKeyEnabled()) {
+                return writeIdempotentAsync(batteries, idempotencyKey);
+            }
+            if (chunkedBatteryWriter.shouldChunk(batteries.size())) {
+                return CompletableFuture.supplyAsync(() -> chunkedBatteryWriter.writeAtomic(batteries), taskExecutor);
+            }
+            if (batteryWriteCoalescer.isEnabled()) {
+                return batteryWriteCoalescer.submit(batteries);
+            }
+            return saveAsync(batteries);
+        });
+    }
+
+    /**
+     * Saves the batteries in chunks that are committed independently and in parallel, and reports
+     * which chunks were committed. Unlike {@link #createBatteries}, a failed chunk does not undo
+     * the others. Idempotency keys and natural keys need the whole request in one transaction, so
+     * they cannot be combined with per-chunk commits.
+     */
+    public CompletableFuture<BatteryChunkedCreateResponse> createBatteriesInChunks(List<Battery> batteries,
+                                                                                   String idempotencyKey) {
         if (batteries == null || batteries.isEmpty()) {
             throw new ValidationException("Battery list cannot be null or empty");
         }
+        logger.debug("Creating {} batteries in chunks", batteries.size());
+        if (idempotencyKey != null) {
+            throw new ValidationException("Idempotency-Key cannot be combined with per-chunk commits");
+        }
+        if (idempotentBatteryWriter.isNaturalKeyEnabled()) {
+            throw new ValidationException("Per-chunk commits are not available while natural keys are enabled");
+        }
+        return admitWrite(batteries, () ->
+                CompletableFuture.supplyAsync(() -> chunkedBatteryWriter.writeChunks(batteries), taskExecutor));
+    }
+
+    // Holds an admission permit until the write completes and turns executor rejections into overload errors
+    private <T> CompletableFuture<T> admitWrite(List<Battery> batteries, Supplier<CompletableFuture<T>> write) {
+        AdmissionLimiter.Permit permit = admissionLimiter.acquire(admissionLimiter.priorityOf(batteries.size()));
+        Timer.Sample sample = batteryMetrics.start();
+        CompletableFuture<T> saved;
+        try {
+            saved = write.get();
+        } catch (RejectedExecutionException e) {
+            permit.releaseRejected();
+            batteryMetrics.recordCreate(sample, batteries.size(), false);
+            throw admissionLimiter.overloaded("Battery writes are saturated, retry later");
+        }
+        return saved.handle((result, error) -> {
+            // The coalescer and the chunked writer report rejections through the future instead of throwing them
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            boolean rejected = cause instanceof RejectedExecutionException;
+            if (rejected) {
+                permit.releaseRejected();
+            } else {
+                permit.release();
+            }
+            batteryMetrics.recordCreate(sample, batteries.size(), error == null);
+            if (rejected) {
+                throw admissionLimiter.overloaded("Battery writes are saturated, retry later");
+            }
+            if (error != null) {
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            }
+            return result;
+        });
+    }
+
+    private CompletableFuture<List<Battery>> saveAsync(List<Battery> batteries) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 List<Battery> savedBatteries = batteryRepository.saveAll(batteries);
-                logger.info("Successfully created {} batteries", savedBatteries.size());
+                eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(savedBatteries)));
+                logger.debug("Successfully created {} batteries", savedBatteries.size());
                 return savedBatteries;
             } catch (DataAccessException e) {
                 logger.error("Failed to save batteries: {}", e.getMessage(), e);
@@ -45,58 +194,301 @@ public class BatteryService {
         }, taskExecutor);
     }
 
+    private CompletableFuture<List<Battery>> writeIdempotentAsync(List<Battery> batteries, String idempotencyKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                IdempotentBatteryWriter.WriteResult result = idempotentBatteryWriter.write(idempotencyKey, batteries);
+                if (result.replayed()) {
+                    batteryMetrics.recordReplay();
+                    logger.debug("Replayed create request with idempotency key {}", idempotencyKey);
+                } else if (!result.inserted().isEmpty()) {
+                    eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(result.inserted())));
+                }
+                return result.batteries();
+            } catch (DataAccessException e) {
+                logger.error("Failed to save batteries: {}", e.getMessage(), e);
+                throw new DatabaseException("Failed to save batteries", e);
+            }
+        }, taskExecutor);
+    }
+
     public BatterySearchResponse searchBatteriesByPostcodeRange(String minPostcode, String maxPostcode,
                                                                 Integer minCapacity, Integer maxCapacity) {
-        logger.info("Searching batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}",
+        return searchBatteriesByPostcodeRange(minPostcode, maxPostcode, minCapacity, maxCapacity, true);
+    }
+
+    public BatterySearchResponse searchBatteriesByPostcodeRange(String minPostcode, String maxPostcode,
+                                                                Integer minCapacity, Integer maxCapacity,
+                                                                boolean includeNames) {
+        logger.debug("Searching batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, includeNames: {}",
+                minPostcode, maxPostcode, minCapacity, maxCapacity, includeNames);
+        validateSearchParameters(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        long start = System.nanoTime();
+        Timer.Sample sample = batteryMetrics.start();
+        BatterySearchResponse response = batterySearchCache.get(minPostcode, maxPostcode, minCapacity, maxCapacity,
+                includeNames, () -> admitted(() -> loadSearch(minPostcode, maxPostcode, minCapacity, maxCapacity, includeNames)));
+        int rows = response.getBatteryNames() == null ? 0 : response.getBatteryNames().size();
+        batteryMetrics.recordSearch(sample, includeNames ? SearchType.NAMES : SearchType.AGGREGATES, rows);
+        logCompletion("Search", start, minPostcode, maxPostcode, rows);
+        return response;
+    }
+
+    /**
+     * Returns one page of matching battery names in (name, id) order. {@code after} is the
+     * {@code nextCursor} of the previous page, or null for the first page. Pages are read with a
+     * keyset seek rather than an offset, so a deep page costs the same as the first one; totals
+     * are not computed here and can be fetched with {@code includeNames=false}.
+     */
+    public BatteryNamePage searchBatteryNamePage(String minPostcode, String maxPostcode,
+                                                 Integer minCapacity, Integer maxCapacity,
+                                                 int pageSize, String after) {
+        logger.debug("Searching battery page in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, pageSize: {}",
+                minPostcode, maxPostcode, minCapacity, maxCapacity, pageSize);
+        validateSearchParameters(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        BatteryNameId cursor = after == null || after.isEmpty() ? null : decodeCursor(after);
+        // One extra row tells us whether another page follows without a count query
+        Limit limit = Limit.of(pageSize + 1);
+        long start = System.nanoTime();
+        Timer.Sample sample = batteryMetrics.start();
+        Timer.Sample querySample = batteryMetrics.start();
+        List<BatteryNameId> rows;
+        try {
+            rows = admitted(() -> cursor == null
+                    ? batteryRepository.findFirstPageByPostcodeRangeAndCapacity(
+                            minPostcode, maxPostcode, minCapacity, maxCapacity, limit)
+                    : batteryRepository.findPageAfterByPostcodeRangeAndCapacity(
+                            minPostcode, maxPostcode, minCapacity, maxCapacity,
+                            cursor.getName(), cursor.getId(), limit));
+        } catch (DataAccessException ex) {
+            logger.error("Failed to search battery page: {}", ex.getMessage(), ex);
+            throw new DatabaseException("Failed to search batteries", ex);
+        }
+        batteryMetrics.recordSearchQueries(querySample, SearchType.PAGE);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<BatteryNameId> page = hasMore ? rows.subList(0, pageSize) : rows;
+        BatteryNamePage response = new BatteryNamePage();
+        response.setBatteryNames(page.stream().map(BatteryNameId::getName).toList());
+        response.setNextCursor(hasMore ? encodeCursor(page.get(page.size() - 1)) : null);
+        batteryMetrics.recordSearch(sample, SearchType.PAGE, page.size());
+        logCompletion("Page search", start, minPostcode, maxPostcode, page.size());
+        return response;
+    }
+
+    /**
+     * Streams matching battery names in name order to {@code nameConsumer} while accumulating the
+     * totals, so memory stays flat regardless of how many batteries match. Callers should validate
+     * the parameters with {@link #validateSearchParameters} before committing any output.
+     */
+    @Transactional(readOnly = true)
+    public BatteryCapacityStats streamBatteriesByPostcodeRange(String minPostcode, String maxPostcode,
+                                                               Integer minCapacity, Integer maxCapacity,
+                                                               Consumer<String> nameConsumer) {
+        logger.debug("Streaming batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}",
                 minPostcode, maxPostcode, minCapacity, maxCapacity);
         validateSearchParameters(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        long start = System.nanoTime();
+        // Query time cannot be separated from writing here, so only the total is recorded
+        Timer.Sample sample = batteryMetrics.start();
+        long count = 0;
+        long totalCapacity = 0;
+        long capacityCount = 0;
+        try (Stream<BatteryNameCapacity> rows = batteryRepository.streamByPostcodeRangeAndCapacity(
+                minPostcode, maxPostcode, minCapacity, maxCapacity)) {
+            Iterator<BatteryNameCapacity> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                BatteryNameCapacity row = iterator.next();
+                nameConsumer.accept(row.getName());
+                count++;
+                if (row.getCapacity() != null) {
+                    totalCapacity += row.getCapacity();
+                    capacityCount++;
+                }
+            }
+        } catch (DataAccessException ex) {
+            logger.error("Failed to stream batteries: {}", ex.getMessage(), ex);
+            throw new DatabaseException("Failed to search batteries", ex);
+        }
+        logCompletion("Streamed search", start, minPostcode, maxPostcode, count);
+        batteryMetrics.recordSearch(sample, SearchType.STREAM, (int) Math.min(count, Integer.MAX_VALUE));
+        // Averages like AVG(capacity) in /search, over the batteries that have a capacity
+        return new BatteryCapacityStats(count, totalCapacity,
+                capacityCount == 0 ? 0.0 : (double) totalCapacity / capacityCount);
+    }
+
+    public BatteryStatisticsResponse getStatisticsByPostcode(String minPostcode, String maxPostcode,
+                                                             Integer minCapacity, Integer maxCapacity,
+                                                             int prefixLength) {
+        return getStatisticsByPostcode(minPostcode, maxPostcode, minCapacity, maxCapacity, prefixLength, true);
+    }
+
+    /**
+     * Returns count, total, min, max, average and median capacity per postcode, or per bucket of
+     * postcodes sharing their first {@code prefixLength} digits. The database groups by postcode
+     * and the rows are folded into buckets as they stream in, so one query answers the whole range.
+     * Without the median, unfiltered statistics are read from the per-postcode summary table.
+     */
+    @Transactional(readOnly = true)
+    public BatteryStatisticsResponse getStatisticsByPostcode(String minPostcode, String maxPostcode,
+                                                             Integer minCapacity, Integer maxCapacity,
+                                                             int prefixLength, boolean includeMedian) {
+        logger.debug("Computing statistics in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, prefixLength: {}, includeMedian: {}",
+                minPostcode, maxPostcode, minCapacity, maxCapacity, prefixLength, includeMedian);
+        validateSearchParameters(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        if (prefixLength < 1 || prefixLength > POSTCODE_DIGITS) {
+            throw new ValidationException("prefixLength must be between 1 and " + POSTCODE_DIGITS);
+        }
+        long start = System.nanoTime();
+        Timer.Sample sample = batteryMetrics.start();
+        Timer.Sample querySample = batteryMetrics.start();
+        PostcodeStatisticsBuckets buckets = new PostcodeStatisticsBuckets(prefixLength);
+        try (Stream<PostcodeStatistics> rows = streamPostcodeStatistics(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, includeMedian)) {
+            rows.forEach(buckets::add);
+        } catch (DataAccessException ex) {
+            logger.error("Failed to compute battery statistics: {}", ex.getMessage(), ex);
+            throw new DatabaseException("Failed to compute battery statistics", ex);
+        }
+        batteryMetrics.recordSearchQueries(querySample, SearchType.STATISTICS);
+
+        BatteryStatisticsResponse response = new BatteryStatisticsResponse();
+        response.setPrefixLength(prefixLength);
+        response.setBuckets(buckets.finish());
+        // Like totals-only searches, no names are returned
+        batteryMetrics.recordSearch(sample, SearchType.STATISTICS, 0);
+        logCompletion("Statistics", start, minPostcode, maxPostcode,
+                response.getBuckets().stream().mapToLong(PostcodeStatistics::getCount).sum());
+        return response;
+    }
+
+    private Stream<PostcodeStatistics> streamPostcodeStatistics(String minPostcode, String maxPostcode,
+                                                                Integer minCapacity, Integer maxCapacity,
+                                                                boolean includeMedian) {
+        if (includeMedian) {
+            return batteryRepository.streamStatisticsByPostcode(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        }
+        if (minCapacity == null && maxCapacity == null && postcodeCapacitySummary.isEnabled()) {
+            return postcodeCapacitySummary.statistics(minPostcode, maxPostcode).stream();
+        }
+        return batteryRepository.streamTotalsByPostcode(minPostcode, maxPostcode, minCapacity, maxCapacity);
+    }
+
+    public SearchCacheStats getSearchCacheStats() {
+        return batterySearchCache.stats();
+    }
+
+    private BatterySearchResponse loadSearch(String minPostcode, String maxPostcode,
+                                             Integer minCapacity, Integer maxCapacity, boolean includeNames) {
+        boolean fromIndex = minCapacity == null && maxCapacity == null && postcodeCapacityIndex.isReady();
         try {
-            List<Battery> batteries = batteryRepository.findByPostcodeRangeAndCapacity(
+            if (fromIndex && !includeNames) {
+                // Answered from memory alone, so no connection is needed
+                return querySearch(minPostcode, maxPostcode, minCapacity, maxCapacity, false, true);
+            }
+            return searchTransaction.execute(status ->
+                    querySearch(minPostcode, maxPostcode, minCapacity, maxCapacity, includeNames, fromIndex));
+        } catch (DataAccessException | TransactionException ex) {
+            logger.error("Failed to search batteries: {}", ex.getMessage(), ex);
+            throw new DatabaseException("Failed to search batteries", ex);
+        }
+    }
+
+    private BatterySearchResponse querySearch(String minPostcode, String maxPostcode, Integer minCapacity,
+                                              Integer maxCapacity, boolean includeNames, boolean fromIndex) {
+        // Names and aggregates are projected in the database; no Battery entities are loaded.
+        // Unfiltered totals come from the in-memory index when it is available, otherwise
+        // from the per-postcode summary table.
+        Timer.Sample querySample = batteryMetrics.start();
+        boolean unfiltered = minCapacity == null && maxCapacity == null;
+        BatteryCapacityStats stats;
+        if (fromIndex) {
+            stats = postcodeCapacityIndex.stats(minPostcode, maxPostcode);
+        } else if (unfiltered && postcodeCapacitySummary.isEnabled()) {
+            stats = postcodeCapacitySummary.stats(minPostcode, maxPostcode);
+        } else {
+            stats = batteryRepository.aggregateByPostcodeRangeAndCapacity(
                     minPostcode, maxPostcode, minCapacity, maxCapacity
             );
+        }
 
-            List<String> batteryNames = batteries.stream()
-                    .map(Battery::getName)
-                    .collect(Collectors.toList());
+        BatterySearchResponse response = new BatterySearchResponse();
+        if (includeNames) {
+            response.setBatteryNames(stats.getCount() == 0 ? new ArrayList<>() :
+                    batteryRepository.findNamesByPostcodeRangeAndCapacity(
+                            minPostcode, maxPostcode, minCapacity, maxCapacity
+                    ));
+        }
+        if (!fromIndex || (includeNames && stats.getCount() > 0)) {
+            batteryMetrics.recordSearchQueries(querySample,
+                    includeNames ? SearchType.NAMES : SearchType.AGGREGATES);
+        }
+        response.setTotalCapacity(stats.getTotalCapacity());
+        response.setAverageCapacity(stats.getAverageCapacity());
+
+        logger.debug("Found {} batteries in postcode range: {} to {}",
+                stats.getCount(), minPostcode, maxPostcode);
+        return response;
+    }
 
-            long totalCapacity = batteries.stream()
-                    .mapToLong(Battery::getCapacity)
-                    .sum();
+    // Only database work takes a permit, so cached searches are still served while searches are being shed
+    private <T> T admitted(Supplier<T> search) {
+        AdmissionLimiter.Permit permit = admissionLimiter.acquire(AdmissionLimiter.Priority.SMALL);
+        try {
+            return search.get();
+        } finally {
+            permit.release();
+        }
+    }
 
-            double averageCapacity = batteries.isEmpty() ? 0.0 :
-                    batteries.stream()
-                            .mapToDouble(Battery::getCapacity)
-                            .average()
-                            .orElse(0.0);
+    // Slow searches are always logged, at WARN; the rest only when sampled
+    private void logCompletion(String operation, long startNanos, String minPostcode, String maxPostcode, long rows) {
+        if (logSampler.isSlow(startNanos)) {
+            logger.warn("Slow {} in postcode range: {} to {} returned {} batteries in {} ms",
+                    operation.toLowerCase(), minPostcode, maxPostcode, rows, LogSampler.elapsedMillis(startNanos));
+        } else if (logSampler.sample(operation)) {
+            logger.info("{} in postcode range: {} to {} returned {} batteries", operation, minPostcode, maxPostcode, rows);
+        }
+    }
 
-            BatterySearchResponse response = new BatterySearchResponse();
-            response.setBatteryNames(batteryNames);
-            response.setTotalCapacity(totalCapacity);
-            response.setAverageCapacity(averageCapacity);
+    // Cursor is base64url("<id>:<name>"); the id comes first because names may contain ':'
+    static String encodeCursor(BatteryNameId last) {
+        String raw = last.getId() + ":" + last.getName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-            logger.info("Found {} batteries in postcode range: {} to {}",
-                    batteryNames.size(), minPostcode, maxPostcode);
-            return response;
-        } catch (DataAccessException ex) {
-            logger.error("Failed to search batteries: {}", ex.getMessage(), ex);
-            throw new DatabaseException("Failed to search batteries", ex);
+    static BatteryNameId decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 1) {
+                throw new ValidationException("Invalid cursor");
+            }
+            return new BatteryNameId(raw.substring(separator + 1), Long.parseLong(raw.substring(0, separator)));
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException
+            throw new ValidationException("Invalid cursor");
         }
     }
 
-    private void validateSearchParameters(String minPostcode, String maxPostcode, Integer minCapacity, Integer maxCapacity) {
+    public void validateSearchParameters(String minPostcode, String maxPostcode, Integer minCapacity, Integer maxCapacity) {
         if (minPostcode == null || minPostcode.isBlank()) {
             throw new ValidationException("minPostcode is mandatory");
         }
         if (maxPostcode == null || maxPostcode.isBlank()) {
             throw new ValidationException("maxPostcode is mandatory");
         }
-        if (!minPostcode.matches("\\d{4}")) {
+        int min = Postcodes.parse(minPostcode);
+        if (min < 0) {
             throw new ValidationException("minPostcode must be a 4-digit number");
         }
-        if (!maxPostcode.matches("\\d{4}")) {
+        int max = Postcodes.parse(maxPostcode);
+        if (max < 0) {
             throw new ValidationException("maxPostcode must be a 4-digit number");
         }
-        if (minPostcode.compareTo(maxPostcode) > 0) {
+        if (min > max) {
             throw new ValidationException("minPostcode must not be greater than maxPostcode");
         }
         if (minCapacity != null && minCapacity < 1) {
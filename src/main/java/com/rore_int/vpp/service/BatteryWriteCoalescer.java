@@ -0,0 +1,178 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.repository.BatteryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batches concurrent battery creates. Requests arriving within {@code window} of the first
+ * pending one, or until {@code maxBatchSize} batteries are pending, are persisted with a single
+ * {@code saveAll}, i.e. one connection checkout, one JDBC batch stream and one commit. Each caller's
+ * future completes with its own saved batteries. If the combined save fails, every request is
+ * retried on its own so only the callers whose batteries are at fault see an error. Off by
+ * default: every create waits for the window, and a failed batch costs its callers a second save.
+ */
+@Component
+public class BatteryWriteCoalescer {
+    private static final Logger logger = LoggerFactory.getLogger(BatteryWriteCoalescer.class);
+    private final BatteryRepository batteryRepository;
+    private final Executor taskExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Duration window;
+    private final int maxBatchSize;
+
+    // Guarded by this
+    private List<PendingWrite> pending = new ArrayList<>();
+    private int pendingBatteries;
+    // Identifies the batch currently collecting, so a window timer never flushes a later batch
+    private long batchSequence;
+
+    public BatteryWriteCoalescer(BatteryRepository batteryRepository, Executor taskExecutor,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${vpp.create.coalesce.enabled:false}") boolean enabled,
+                                 @Value("${vpp.create.coalesce.window:5ms}") Duration window,
+                                 @Value("${vpp.create.coalesce.max-batch-size:500}") int maxBatchSize) {
+        this.batteryRepository = batteryRepository;
+        this.taskExecutor = taskExecutor;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<List<Battery>> submit(List<Battery> batteries) {
+        PendingWrite write = new PendingWrite(batteries);
+        List<PendingWrite> full = null;
+        long scheduleSequence = -1;
+        synchronized (this) {
+            pending.add(write);
+            pendingBatteries += batteries.size();
+            if (pendingBatteries >= maxBatchSize) {
+                full = takePending();
+            } else if (pending.size() == 1) {
+                scheduleSequence = batchSequence;
+            }
+        }
+        if (full != null) {
+            flushAsync(full);
+        } else if (scheduleSequence >= 0) {
+            long sequence = scheduleSequence;
+            // The timer thread only hands the batch over; saving happens on the task executor
+            CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS, Runnable::run)
+                    .execute(() -> flushWindow(sequence));
+        }
+        return write.future;
+    }
+
+    private void flushWindow(long sequence) {
+        List<PendingWrite> batch;
+        synchronized (this) {
+            if (sequence != batchSequence || pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        flushAsync(batch);
+    }
+
+    // Caller must hold the lock
+    private List<PendingWrite> takePending() {
+        List<PendingWrite> batch = pending;
+        pending = new ArrayList<>();
+        pendingBatteries = 0;
+        batchSequence++;
+        return batch;
+    }
+
+    private void flushAsync(List<PendingWrite> batch) {
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    flush(batch);
+                } catch (RuntimeException e) {
+                    // Never leave a caller waiting; futures already completed are unaffected
+                    logger.error("Unexpected failure in coalesced write: {}", e.getMessage(), e);
+                    batch.forEach(write -> write.future.completeExceptionally(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.error("Rejected coalesced write of {} requests: {}", batch.size(), e.getMessage());
+            batch.forEach(write -> write.future.completeExceptionally(e));
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        if (batch.size() == 1) {
+            saveSeparately(batch.get(0));
+            return;
+        }
+        List<Battery> combined = new ArrayList<>();
+        List<Long> originalIds = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            for (Battery battery : write.batteries) {
+                combined.add(battery);
+                originalIds.add(battery.getId());
+            }
+        }
+        List<Battery> saved;
+        try {
+            saved = batteryRepository.saveAll(combined);
+        } catch (DataAccessException e) {
+            logger.warn("Coalesced write of {} requests failed, retrying each request separately: {}",
+                    batch.size(), e.getMessage());
+            // Ids assigned during the rolled-back attempt must not turn the retry into a merge
+            for (int i = 0; i < combined.size(); i++) {
+                combined.get(i).setId(originalIds.get(i));
+            }
+            batch.forEach(this::saveSeparately);
+            return;
+        }
+        eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(saved)));
+        logger.info("Coalesced {} create requests into one transaction of {} batteries", batch.size(), saved.size());
+        int offset = 0;
+        for (PendingWrite write : batch) {
+            int size = write.batteries.size();
+            write.future.complete(new ArrayList<>(saved.subList(offset, offset + size)));
+            offset += size;
+        }
+    }
+
+    private void saveSeparately(PendingWrite write) {
+        try {
+            List<Battery> saved = batteryRepository.saveAll(write.batteries);
+            eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(saved)));
+            write.future.complete(saved);
+        } catch (DataAccessException e) {
+            logger.error("Failed to save batteries: {}", e.getMessage(), e);
+            write.future.completeExceptionally(new DatabaseException("Failed to save batteries", e));
+        }
+    }
+
+    private static final class PendingWrite {
+        private final List<Battery> batteries;
+        private final CompletableFuture<List<Battery>> future = new CompletableFuture<>();
+
+        PendingWrite(List<Battery> batteries) {
+            this.batteries = batteries;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.BatteryChunkedCreateResponse;
+import com.rore_int.vpp.dto.BatteryChunkedCreateResponse.ChunkOutcome;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.repository.BatteryRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Persists very large create requests in chunks of {@code vpp.create.chunk.size} batteries.
+ * <p>
+ * {@link #writeAtomic} is all-or-nothing: the whole request is written in one transaction on one
+ * connection. Each chunk is flushed and then detached, so the persistence context never holds
+ * more than one chunk and Hibernate's dirty checking does not grow with the request.
+ * {@link #writeChunks} commits every chunk on its own and reports each chunk's outcome; its chunks
+ * are written by up to {@code vpp.create.chunk.parallelism} workers, the calling thread plus
+ * executor tasks. A parallelism of 0 means one worker per available processor, at most four,
+ * since each worker spends much of its time in Hibernate and the JDBC driver rather than waiting
+ * on the database.
+ */
+@Component
+public class ChunkedBatteryWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedBatteryWriter.class);
+    private static final int MAX_DEFAULT_PARALLELISM = 4;
+    private final BatteryRepository batteryRepository;
+    private final EntityManager entityManager;
+    private final Executor taskExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int threshold;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public ChunkedBatteryWriter(BatteryRepository batteryRepository, EntityManager entityManager,
+                                Executor taskExecutor, ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${vpp.create.chunk.threshold:10000}") int threshold,
+                                @Value("${vpp.create.chunk.size:5000}") int chunkSize,
+                                @Value("${vpp.create.chunk.parallelism:0}") int parallelism) {
+        if (chunkSize < 1 || parallelism < 0) {
+            throw new IllegalArgumentException("vpp.create.chunk.size must be positive and parallelism not negative");
+        }
+        this.batteryRepository = batteryRepository;
+        this.entityManager = entityManager;
+        this.taskExecutor = taskExecutor;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism
+                : Math.min(MAX_DEFAULT_PARALLELISM, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Whether the default all-or-nothing create should flush a request of this size chunk by
+     * chunk. Smaller requests fit in one persistence context and keep the plain save paths.
+     */
+    public boolean shouldChunk(int batteries) {
+        return batteries > threshold && batteries > chunkSize;
+    }
+
+    /**
+     * Saves all batteries or none of them in one transaction and returns them in request order.
+     * Throws {@link DatabaseException} if any chunk failed.
+     */
+    public List<Battery> writeAtomic(List<Battery> batteries) {
+        List<List<Battery>> chunks = partition(batteries, chunkSize);
+        List<Battery> saved = new ArrayList<>(batteries.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (List<Battery> chunk : chunks) {
+                    // Flushing sends the inserts now; clearing keeps only the next chunk managed
+                    saved.addAll(batteryRepository.saveAllAndFlush(chunk));
+                    entityManager.clear();
+                }
+            });
+        } catch (DataAccessException | TransactionException e) {
+            logger.error("Failed to save {} batteries in chunks: {}", batteries.size(), e.getMessage(), e);
+            throw new DatabaseException("Failed to save batteries", e);
+        }
+        eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(saved)));
+        logger.info("Saved {} batteries in {} chunks in one transaction", saved.size(), chunks.size());
+        return saved;
+    }
+
+    /**
+     * Commits every chunk in its own transaction, so a failed chunk leaves the others in place.
+     * Never throws for a failed chunk; the response reports which chunks were committed.
+     */
+    public BatteryChunkedCreateResponse writeChunks(List<Battery> batteries) {
+        List<List<Battery>> chunks = partition(batteries, chunkSize);
+        ChunkOutcome[] outcomes = new ChunkOutcome[chunks.size()];
+        AtomicReferenceArray<List<Battery>> saved = new AtomicReferenceArray<>(chunks.size());
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < chunks.size()) {
+                List<Battery> chunk = chunks.get(index);
+                ChunkOutcome outcome = new ChunkOutcome(index, index * chunkSize, chunk.size(), false, null);
+                // Any failure, not only a data access one, must still leave a report for this chunk
+                try {
+                    saved.set(index, batteryRepository.saveAll(chunk));
+                    outcome.setCommitted(true);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to save chunk {} of {} batteries: {}", index, chunk.size(), e.getMessage(), e);
+                    outcome.setError("Failed to save batteries");
+                }
+                outcomes[index] = outcome;
+                if (outcome.isCommitted()) {
+                    try {
+                        eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(saved.get(index))));
+                    } catch (RuntimeException e) {
+                        // The chunk is committed either way; a failing listener must not report it as lost
+                        logger.error("Failed to publish saved chunk {}: {}", index, e.getMessage(), e);
+                    }
+                }
+            }
+        };
+        runWorkers(worker, Math.min(parallelism, chunks.size()));
+
+        BatteryChunkedCreateResponse response = new BatteryChunkedCreateResponse();
+        for (int i = 0; i < chunks.size(); i++) {
+            response.getChunks().add(outcomes[i]);
+            if (outcomes[i].isCommitted()) {
+                response.setCommitted(response.getCommitted() + outcomes[i].getSize());
+                response.getBatteries().addAll(saved.get(i));
+            } else {
+                response.setFailed(response.getFailed() + outcomes[i].getSize());
+            }
+        }
+        logger.info("Saved {} of {} batteries in {} chunks", response.getCommitted(), batteries.size(), chunks.size());
+        return response;
+    }
+
+    // Runs the worker on the calling thread and up to workers - 1 executor tasks
+    private void runWorkers(Runnable worker, int workers) {
+        List<CompletableFuture<Void>> running = new ArrayList<>(workers - 1);
+        for (int i = 1; i < workers; i++) {
+            try {
+                running.add(CompletableFuture.runAsync(worker, taskExecutor));
+            } catch (RejectedExecutionException e) {
+                // The executor is saturated; the calling thread picks up the remaining chunks
+                break;
+            }
+        }
+        worker.run();
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+    }
+
+    private static List<List<Battery>> partition(List<Battery> batteries, int size) {
+        List<List<Battery>> parts = new ArrayList<>(ceilDiv(batteries.size(), size));
+        for (int from = 0; from < batteries.size(); from += size) {
+            parts.add(batteries.subList(from, Math.min(from + size, batteries.size())));
+        }
+        return parts;
+    }
+
+    private static int ceilDiv(int dividend, int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+}
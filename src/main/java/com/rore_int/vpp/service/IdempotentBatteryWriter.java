@@ -0,0 +1,153 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.IdempotencyKeyMismatchException;
+import com.rore_int.vpp.repository.BatteryRepository;
+import com.rore_int.vpp.repository.BatteryRequestRepository;
+import com.rore_int.vpp.validation.Postcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Create path that is safe to retry. A request carrying an idempotency key claims the key in
+ * the same transaction as its batteries; a replay of a committed key returns the batteries that
+ * request created without writing anything, provided it asks for the same batteries. With
+ * {@code vpp.create.natural-key.enabled}, only batteries whose (name, postcode) is new are
+ * inserted and existing rows are returned as they are.
+ */
+@Component
+public class IdempotentBatteryWriter {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentBatteryWriter.class);
+    // The purge interval is configured like the retention ("1h"); @Scheduled itself wants milliseconds
+    private static final String PURGE_INTERVAL_MILLIS = "#{T(org.springframework.boot.convert.DurationStyle)"
+            + ".detectAndParse('${vpp.create.idempotency.purge-interval:1h}').toMillis()}";
+    private final BatteryRepository batteryRepository;
+    private final BatteryRequestRepository batteryRequestRepository;
+    private final boolean naturalKeyEnabled;
+    private final Duration retention;
+
+    public IdempotentBatteryWriter(BatteryRepository batteryRepository,
+                                   BatteryRequestRepository batteryRequestRepository,
+                                   @Value("${vpp.create.natural-key.enabled:false}") boolean naturalKeyEnabled,
+                                   @Value("${vpp.create.idempotency.retention:24h}") Duration retention) {
+        this.batteryRepository = batteryRepository;
+        this.batteryRequestRepository = batteryRequestRepository;
+        this.naturalKeyEnabled = naturalKeyEnabled;
+        this.retention = retention;
+    }
+
+    public boolean isNaturalKeyEnabled() {
+        return naturalKeyEnabled;
+    }
+
+    /**
+     * Saves the batteries, or replays an earlier request with the same idempotency key. The key
+     * may be null, in which case only the natural key (if enabled) prevents duplicates. Reusing a
+     * key for different batteries throws {@link IdempotencyKeyMismatchException}.
+     */
+    @Transactional
+    public WriteResult write(String idempotencyKey, List<Battery> batteries) {
+        if (idempotencyKey != null) {
+            // Hashed before the write, which fills in ids and replaces capacities of existing natural keys
+            byte[] requestHash = hash(batteries);
+            if (!batteryRequestRepository.claim(idempotencyKey, requestHash)) {
+                return replay(idempotencyKey, requestHash);
+            }
+        }
+        List<Battery> saved;
+        List<Battery> inserted;
+        if (naturalKeyEnabled) {
+            inserted = batteryRepository.insertIfAbsent(batteries);
+            saved = batteries;
+        } else {
+            saved = batteryRepository.saveAll(batteries);
+            inserted = saved;
+        }
+        if (idempotencyKey != null) {
+            batteryRequestRepository.complete(idempotencyKey, saved.stream().map(Battery::getId).toList());
+        }
+        return new WriteResult(saved, inserted, false);
+    }
+
+    @Scheduled(fixedDelayString = PURGE_INTERVAL_MILLIS, initialDelayString = PURGE_INTERVAL_MILLIS)
+    public void purgeExpiredKeys() {
+        try {
+            int purged = batteryRequestRepository.deleteCreatedBefore(Instant.now().minus(retention));
+            logger.info("Purged {} idempotency keys older than {}", purged, retention);
+        } catch (DataAccessException e) {
+            logger.error("Failed to purge idempotency keys: {}", e.getMessage(), e);
+        }
+    }
+
+    private WriteResult replay(String idempotencyKey, byte[] requestHash) {
+        BatteryRequestRepository.StoredRequest stored = batteryRequestRepository.findRequest(idempotencyKey)
+                .orElse(new BatteryRequestRepository.StoredRequest(List.of(), null));
+        if (stored.requestHash() != null && !MessageDigest.isEqual(stored.requestHash(), requestHash)) {
+            throw new IdempotencyKeyMismatchException(
+                    "Idempotency-Key was already used for a different list of batteries");
+        }
+        return new WriteResult(findInOrder(stored.batteryIds()), List.of(), true);
+    }
+
+    /**
+     * Hashes the requested batteries rather than the raw body, so a retry matches whether it is
+     * sent as JSON, CBOR or Smile. Ids are ignored because the server assigns them.
+     */
+    static byte[] hash(List<Battery> batteries) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        ByteBuffer fields = ByteBuffer.allocate(3 * Integer.BYTES);
+        for (Battery battery : batteries) {
+            byte[] name = battery.getName().getBytes(StandardCharsets.UTF_8);
+            Integer capacity = battery.getCapacity();
+            // Prefixing the name with its length keeps the encoding unambiguous; -1 marks a missing capacity
+            fields.clear();
+            fields.putInt(name.length).putInt(Postcodes.parse(battery.getPostcode()))
+                    .putInt(capacity == null ? -1 : capacity);
+            digest.update(fields.array());
+            digest.update(name);
+        }
+        return digest.digest();
+    }
+
+    private List<Battery> findInOrder(List<Long> ids) {
+        Map<Long, Battery> byId = batteryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Battery::getId, Function.identity()));
+        List<Battery> batteries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Battery battery = byId.get(id);
+            if (battery != null) {
+                batteries.add(battery);
+            }
+        }
+        return batteries;
+    }
+
+    /**
+     * {@code batteries} has one entry per requested battery; {@code inserted} holds only the new
+     * rows, which are what in-memory views of the table need to hear about.
+     */
+    public record WriteResult(List<Battery> batteries, List<Battery> inserted, boolean replayed) {
+    }
+}
@@ -0,0 +1,167 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.PostcodeCapacityTotals;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.repository.BatteryRepository;
+import com.rore_int.vpp.validation.Postcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process battery count and capacity totals per postcode, kept in Fenwick trees over the
+ * 10,000 possible 4-digit postcodes so any range total is answered in O(log n) without a query.
+ * <p>
+ * The index is loaded from the database before the web server starts and is then updated by
+ * this node's writes only, so it is meant for deployments with a single writing instance.
+ * Until it is loaded (or when disabled) {@link #isReady()} is false and callers use the database.
+ */
+@Component
+public class PostcodeCapacityIndex implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(PostcodeCapacityIndex.class);
+    static final int POSTCODES = 10_000;
+
+    private final BatteryRepository batteryRepository;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 1-based Fenwick trees; postcode p is stored at index p + 1. Batteries without a capacity
+    // add nothing to capacities or capacityCounts, as with SUM and AVG in the database.
+    private long[] counts = new long[POSTCODES + 1];
+    private long[] capacities = new long[POSTCODES + 1];
+    private long[] capacityCounts = new long[POSTCODES + 1];
+    private volatile boolean ready;
+
+    public PostcodeCapacityIndex(BatteryRepository batteryRepository,
+                                 @Value("${vpp.search.index.enabled:false}") boolean enabled) {
+        this.batteryRepository = batteryRepository;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild() {
+        List<PostcodeCapacityTotals> totals;
+        try {
+            totals = batteryRepository.sumCapacityByPostcode();
+        } catch (DataAccessException e) {
+            logger.error("Failed to load postcode capacity index, searches will use the database: {}",
+                    e.getMessage(), e);
+            return;
+        }
+        long[] newCounts = new long[POSTCODES + 1];
+        long[] newCapacities = new long[POSTCODES + 1];
+        long[] newCapacityCounts = new long[POSTCODES + 1];
+        for (PostcodeCapacityTotals total : totals) {
+            int postcode = Postcodes.parse(total.getPostcode());
+            if (postcode < 0) {
+                logger.warn("Skipping invalid postcode {} in postcode capacity index", total.getPostcode());
+                continue;
+            }
+            int index = postcode + 1;
+            newCounts[index] += total.getCount();
+            newCapacities[index] += total.getTotalCapacity();
+            newCapacityCounts[index] += total.getCapacityCount();
+        }
+        // Linear-time Fenwick construction: push each node's partial sum to its parent
+        for (int i = 1; i <= POSTCODES; i++) {
+            int parent = i + (i & -i);
+            if (parent <= POSTCODES) {
+                newCounts[parent] += newCounts[i];
+                newCapacities[parent] += newCapacities[i];
+                newCapacityCounts[parent] += newCapacityCounts[i];
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            counts = newCounts;
+            capacities = newCapacities;
+            capacityCounts = newCapacityCounts;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Loaded postcode capacity index from {} postcodes", totals.size());
+    }
+
+    // Runs before the search cache invalidates, so re-loaded searches see the new totals
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBatteriesSaved(BatteriesSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Battery battery : event.getBatteries()) {
+                int postcode = Postcodes.parse(battery.getPostcode());
+                if (postcode < 0) {
+                    // Index 0 would never advance the Fenwick loop below
+                    logger.warn("Skipping battery with invalid postcode {} in postcode capacity index",
+                            battery.getPostcode());
+                    continue;
+                }
+                // Capacity is optional on a battery
+                Integer capacity = battery.getCapacity();
+                for (int i = postcode + 1; i <= POSTCODES; i += i & -i) {
+                    counts[i]++;
+                    if (capacity != null) {
+                        capacities[i] += capacity;
+                        capacityCounts[i]++;
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public BatteryCapacityStats stats(String minPostcode, String maxPostcode) {
+        int from = Postcodes.parse(minPostcode);
+        int to = Postcodes.parse(maxPostcode);
+        if (from < 0 || to < 0) {
+            throw new IllegalArgumentException("Postcodes must be 4-digit numbers: " + minPostcode + " to " + maxPostcode);
+        }
+        long count;
+        long totalCapacity;
+        long capacityCount;
+        lock.readLock().lock();
+        try {
+            count = prefixSum(counts, to) - prefixSum(counts, from - 1);
+            totalCapacity = prefixSum(capacities, to) - prefixSum(capacities, from - 1);
+            capacityCount = prefixSum(capacityCounts, to) - prefixSum(capacityCounts, from - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new BatteryCapacityStats(count, totalCapacity,
+                capacityCount == 0 ? 0.0 : (double) totalCapacity / capacityCount);
+    }
+
+    // Sum of postcodes 0..postcode inclusive
+    private static long prefixSum(long[] tree, int postcode) {
+        long sum = 0;
+        for (int i = postcode + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
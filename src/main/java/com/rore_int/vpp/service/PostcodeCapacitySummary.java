@@ -0,0 +1,93 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.PostcodeStatistics;
+import com.rore_int.vpp.metrics.BatteryMetrics;
+import com.rore_int.vpp.repository.PostcodeCapacitySummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Unfiltered range totals and per-postcode statistics read from the
+ * {@code postcode_capacity_summary} table and its pending deltas, which triggers keep in step with
+ * {@code batteries}. Unlike {@link PostcodeCapacityIndex} it sees every instance's writes, so it is
+ * safe with several writing instances. A scheduled job verifies the table against
+ * {@code batteries} and rebuilds it when they differ.
+ */
+@Component
+public class PostcodeCapacitySummary {
+    private static final Logger logger = LoggerFactory.getLogger(PostcodeCapacitySummary.class);
+    // @Scheduled only parses milliseconds and ISO-8601, so convert the usual "24h" style here
+    private static final String RECONCILE_INTERVAL_MILLIS = "#{T(org.springframework.boot.convert.DurationStyle)"
+            + ".detectAndParse('${vpp.search.summary.reconcile-interval:24h}').toMillis()}";
+    private static final String FOLD_INTERVAL_MILLIS = "#{T(org.springframework.boot.convert.DurationStyle)"
+            + ".detectAndParse('${vpp.search.summary.fold-interval:1s}').toMillis()}";
+    private final PostcodeCapacitySummaryRepository summaryRepository;
+    private final BatteryMetrics batteryMetrics;
+    private final boolean enabled;
+
+    public PostcodeCapacitySummary(PostcodeCapacitySummaryRepository summaryRepository, BatteryMetrics batteryMetrics,
+                                   @Value("${vpp.search.summary.enabled:true}") boolean enabled) {
+        this.summaryRepository = summaryRepository;
+        this.batteryMetrics = batteryMetrics;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public BatteryCapacityStats stats(String minPostcode, String maxPostcode) {
+        return summaryRepository.aggregateByPostcodeRange(minPostcode, maxPostcode);
+    }
+
+    public List<PostcodeStatistics> statistics(String minPostcode, String maxPostcode) {
+        return summaryRepository.findByPostcodeRange(minPostcode, maxPostcode);
+    }
+
+    /**
+     * Merges pending insert deltas into the summary. Runs whether or not reads are enabled, since
+     * the triggers always write deltas; with several instances the folds simply take turns.
+     */
+    @Scheduled(fixedDelayString = FOLD_INTERVAL_MILLIS, initialDelayString = FOLD_INTERVAL_MILLIS)
+    public void fold() {
+        try {
+            int postcodes = summaryRepository.fold();
+            logger.debug("Folded summary deltas for {} postcodes", postcodes);
+        } catch (DataAccessException e) {
+            logger.error("Failed to fold postcode capacity summary deltas: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the number of postcodes that were out of step and have been rebuilt. The
+     * triggers make drift unlikely; it follows manual edits with triggers disabled, or restores.
+     */
+    @Scheduled(fixedDelayString = RECONCILE_INTERVAL_MILLIS, initialDelayString = RECONCILE_INTERVAL_MILLIS)
+    public int reconcile() {
+        if (!enabled) {
+            return 0;
+        }
+        try {
+            int mismatches = summaryRepository.countMismatches();
+            batteryMetrics.recordSummaryMismatches(mismatches);
+            if (mismatches == 0) {
+                logger.info("Postcode capacity summary matches batteries");
+                return 0;
+            }
+            logger.warn("Postcode capacity summary differs from batteries for {} postcodes, rebuilding", mismatches);
+            int postcodes = summaryRepository.rebuild();
+            logger.info("Rebuilt postcode capacity summary for {} postcodes", postcodes);
+            return mismatches;
+        } catch (DataAccessException e) {
+            logger.error("Failed to reconcile postcode capacity summary: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.PostcodeStatistics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+/**
+ * Folds per-postcode statistics, which arrive in postcode order, into buckets of postcodes that
+ * share their first {@code prefixLength} digits. A bucket is closed as soon as the next one
+ * starts, so a single pass is enough and only the open bucket's postcodes are kept.
+ * <p>
+ * Counts, totals, minima and maxima combine exactly. Medians do not, so a bucket's median is
+ * the count-weighted median of its postcodes' medians, or null when they were not computed.
+ */
+class PostcodeStatisticsBuckets {
+    private final int prefixLength;
+    private final List<PostcodeStatistics> buckets = new ArrayList<>();
+    private final List<PostcodeStatistics> open = new ArrayList<>();
+    private String openPrefix;
+
+    PostcodeStatisticsBuckets(int prefixLength) {
+        this.prefixLength = prefixLength;
+    }
+
+    void add(PostcodeStatistics postcode) {
+        if (prefixLength == 4) {
+            buckets.add(postcode);
+            return;
+        }
+        String prefix = postcode.getPostcode().substring(0, prefixLength);
+        if (!prefix.equals(openPrefix)) {
+            close();
+            openPrefix = prefix;
+        }
+        open.add(postcode);
+    }
+
+    List<PostcodeStatistics> finish() {
+        close();
+        return buckets;
+    }
+
+    private void close() {
+        if (open.isEmpty()) {
+            return;
+        }
+        long count = 0;
+        long totalCapacity = 0;
+        long capacityCount = 0;
+        Integer minCapacity = null;
+        Integer maxCapacity = null;
+        for (PostcodeStatistics postcode : open) {
+            count += postcode.getCount();
+            totalCapacity += postcode.getTotalCapacity();
+            capacityCount += postcode.getCapacityCount();
+            minCapacity = combine(minCapacity, postcode.getMinCapacity(), Math::min);
+            maxCapacity = combine(maxCapacity, postcode.getMaxCapacity(), Math::max);
+        }
+        buckets.add(new PostcodeStatistics(openPrefix, count, totalCapacity, capacityCount, minCapacity, maxCapacity,
+                weightedMedian(count)));
+        open.clear();
+    }
+
+    private static Integer combine(Integer current, Integer next, BinaryOperator<Integer> operator) {
+        if (current == null) {
+            return next;
+        }
+        return next == null ? current : operator.apply(current, next);
+    }
+
+    private Integer weightedMedian(long count) {
+        if (open.stream().anyMatch(postcode -> postcode.getMedianCapacity() == null)) {
+            return null;
+        }
+        open.sort(Comparator.comparing(PostcodeStatistics::getMedianCapacity));
+        // Lower median, matching PERCENTILE_DISC(0.5) for a single postcode
+        long half = (count + 1) / 2;
+        long seen = 0;
+        for (PostcodeStatistics postcode : open) {
+            seen += postcode.getCount();
+            if (seen >= half) {
+                return postcode.getMedianCapacity();
+            }
+        }
+        return open.get(open.size() - 1).getMedianCapacity();
+    }
+}
@@ -0,0 +1,26 @@
+package com.rore_int.vpp.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated string must be a 4-digit postcode. Null is valid; combine with
+ * {@code @NotBlank} to make the postcode mandatory.
+ */
+@Documented
+@Constraint(validatedBy = PostcodeValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Postcode {
+    String message() default "Postcode must be a 4-digit number";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
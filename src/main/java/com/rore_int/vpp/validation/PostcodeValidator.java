@@ -0,0 +1,12 @@
+package com.rore_int.vpp.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class PostcodeValidator implements ConstraintValidator<Postcode, CharSequence> {
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || Postcodes.isValid(value);
+    }
+}
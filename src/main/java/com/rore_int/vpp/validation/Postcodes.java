@@ -0,0 +1,47 @@
+package com.rore_int.vpp.validation;
+
+/**
+ * Parsing and formatting of 4-digit postcodes. On the wire postcodes are zero-padded strings
+ * ("0800"); in the database and in memory they are numbers 0 to 9999. Parsing checks the digits
+ * by hand instead of matching a regex, so validating a postcode allocates nothing.
+ */
+public final class Postcodes {
+    public static final int MAX = 9999;
+
+    private Postcodes() {
+    }
+
+    /**
+     * Returns the numeric value of a postcode, or -1 unless it is exactly four ASCII digits.
+     */
+    public static int parse(CharSequence postcode) {
+        if (postcode == null || postcode.length() != 4) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            char c = postcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    public static boolean isValid(CharSequence postcode) {
+        return parse(postcode) >= 0;
+    }
+
+    public static String format(int postcode) {
+        if (postcode < 0 || postcode > MAX) {
+            throw new IllegalArgumentException("Postcode out of range: " + postcode);
+        }
+        char[] digits = new char[4];
+        for (int i = 3; i >= 0; i--) {
+            digits[i] = (char) ('0' + postcode % 10);
+            postcode /= 10;
+        }
+        return new String(digits);
+    }
+}
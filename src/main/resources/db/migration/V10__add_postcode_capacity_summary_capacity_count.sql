@@ -0,0 +1,102 @@
+-- Searches that aggregate batteries average with AVG(capacity), which skips batteries without a
+-- capacity, while the summary could only divide its total by battery_count. capacity_count
+-- counts the batteries that have a capacity, so both paths return the same average.
+-- Existing rows are rebuilt while writes are blocked, as in V7.
+ALTER TABLE postcode_capacity_summary ADD COLUMN IF NOT EXISTS capacity_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE postcode_capacity_summary ALTER COLUMN capacity_count DROP DEFAULT;
+ALTER TABLE postcode_capacity_summary_delta ADD COLUMN IF NOT EXISTS capacity_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE postcode_capacity_summary_delta ALTER COLUMN capacity_count DROP DEFAULT;
+
+LOCK TABLE batteries IN SHARE ROW EXCLUSIVE MODE;
+SELECT pg_advisory_xact_lock(hashtext('postcode_capacity_summary'));
+DELETE FROM postcode_capacity_summary_delta;
+DELETE FROM postcode_capacity_summary;
+INSERT INTO postcode_capacity_summary
+    (postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count)
+SELECT postcode, COUNT(*), COALESCE(SUM(capacity), 0), MIN(capacity), MAX(capacity), COUNT(capacity)
+FROM batteries
+GROUP BY postcode;
+
+-- New columns can only be appended to a view
+CREATE OR REPLACE VIEW postcode_capacity_summary_current AS
+SELECT postcode,
+       SUM(battery_count)::bigint  AS battery_count,
+       SUM(total_capacity)::bigint AS total_capacity,
+       MIN(min_capacity)           AS min_capacity,
+       MAX(max_capacity)           AS max_capacity,
+       SUM(capacity_count)::bigint AS capacity_count
+FROM (SELECT postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count
+      FROM postcode_capacity_summary
+      UNION ALL
+      SELECT postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count
+      FROM postcode_capacity_summary_delta) summary_rows
+GROUP BY postcode;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_add() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO postcode_capacity_summary_delta
+        (postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count)
+    SELECT postcode, COUNT(*), COALESCE(SUM(capacity), 0), MIN(capacity), MAX(capacity), COUNT(capacity)
+    FROM added
+    GROUP BY postcode;
+    RETURN NULL;
+END
+$$;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_recompute(postcodes SMALLINT[]) RETURNS void
+LANGUAGE sql AS $$
+    SELECT pg_advisory_xact_lock(hashtext('postcode_capacity_summary'));
+    WITH actual AS (
+        SELECT postcode, COUNT(*) AS battery_count, COALESCE(SUM(capacity), 0) AS total_capacity,
+               MIN(capacity) AS min_capacity, MAX(capacity) AS max_capacity, COUNT(capacity) AS capacity_count
+        FROM batteries
+        WHERE postcode = ANY (postcodes)
+        GROUP BY postcode
+    ), dropped_deltas AS (
+        DELETE FROM postcode_capacity_summary_delta WHERE postcode = ANY (postcodes)
+    ), emptied AS (
+        DELETE FROM postcode_capacity_summary s
+        WHERE s.postcode = ANY (postcodes)
+          AND NOT EXISTS (SELECT 1 FROM actual a WHERE a.postcode = s.postcode)
+    )
+    INSERT INTO postcode_capacity_summary AS s
+        (postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count)
+    SELECT postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count
+    FROM actual
+    ORDER BY postcode
+    ON CONFLICT (postcode) DO UPDATE SET
+        battery_count = EXCLUDED.battery_count,
+        total_capacity = EXCLUDED.total_capacity,
+        min_capacity = EXCLUDED.min_capacity,
+        max_capacity = EXCLUDED.max_capacity,
+        capacity_count = EXCLUDED.capacity_count;
+$$;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_fold() RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    folded integer;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('postcode_capacity_summary'));
+    WITH moved AS (
+        DELETE FROM postcode_capacity_summary_delta
+        RETURNING postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count
+    )
+    INSERT INTO postcode_capacity_summary AS s
+        (postcode, battery_count, total_capacity, min_capacity, max_capacity, capacity_count)
+    SELECT postcode, SUM(battery_count)::bigint, SUM(total_capacity)::bigint, MIN(min_capacity), MAX(max_capacity),
+           SUM(capacity_count)::bigint
+    FROM moved
+    GROUP BY postcode
+    ORDER BY postcode
+    ON CONFLICT (postcode) DO UPDATE SET
+        battery_count = s.battery_count + EXCLUDED.battery_count,
+        total_capacity = s.total_capacity + EXCLUDED.total_capacity,
+        min_capacity = LEAST(s.min_capacity, EXCLUDED.min_capacity),
+        max_capacity = GREATEST(s.max_capacity, EXCLUDED.max_capacity),
+        capacity_count = s.capacity_count + EXCLUDED.capacity_count;
+    GET DIAGNOSTICS folded = ROW_COUNT;
+    RETURN folded;
+END
+$$;
@@ -0,0 +1,5 @@
+-- A replay of an idempotency key must carry the request that claimed it. request_hash is a
+-- SHA-256 of the requested batteries; a retry whose batteries hash differently is rejected
+-- instead of silently returning the first request's result. Keys claimed before this migration
+-- have no hash and are replayed unchecked until they are purged.
+ALTER TABLE battery_requests ADD COLUMN IF NOT EXISTS request_hash BYTEA;
@@ -0,0 +1,18 @@
+-- Baseline schema for batteries.
+-- Safe to run against databases previously managed by ddl-auto=update, where id was an
+-- IDENTITY column: Hibernate now assigns ids from a pooled sequence so inserts can be batched.
+CREATE TABLE IF NOT EXISTS batteries (
+    id       BIGINT       NOT NULL,
+    capacity INTEGER,
+    name     VARCHAR(255),
+    postcode VARCHAR(255),
+    CONSTRAINT batteries_pkey PRIMARY KEY (id)
+);
+
+ALTER TABLE batteries ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+-- Increment must match the allocationSize of the id generator on Battery.
+CREATE SEQUENCE IF NOT EXISTS batteries_seq START WITH 1 INCREMENT BY 50;
+
+-- Move the sequence past any existing ids (pooled optimizer hands out value - 49 .. value).
+SELECT setval('batteries_seq', COALESCE((SELECT MAX(id) FROM batteries), 0) + 50, false);
@@ -0,0 +1,3 @@
+-- Supports keyset pagination of search results ordered by (name, id). postcode and capacity are
+-- included so range and capacity filters can be checked without visiting the table.
+CREATE INDEX IF NOT EXISTS idx_batteries_name_id ON batteries (name, id) INCLUDE (postcode, capacity);
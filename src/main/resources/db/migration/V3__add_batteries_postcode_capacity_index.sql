@@ -0,0 +1,5 @@
+-- Covering index for the postcode range searches: the range and capacity filters are index
+-- conditions and name is included, so names, counts and capacity totals come from index-only
+-- scans instead of a sequential scan of the table. Built concurrently so writes are not blocked;
+-- Flyway runs this statement outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_batteries_postcode_capacity ON batteries (postcode, capacity) INCLUDE (name);
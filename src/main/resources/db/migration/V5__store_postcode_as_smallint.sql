@@ -0,0 +1,13 @@
+-- Postcodes are 4-digit numbers: store them as SMALLINT so range filters compare numerically
+-- and rows and index entries shrink. The zero-padded string form is restored by
+-- PostcodeConverter. Rows whose postcode is not a number make this migration fail; fix them first.
+-- The table is rewritten under an exclusive lock, so writes should be stopped while this runs.
+-- A partitioned table cannot change the type of its partition key; db/partitioning/V5_1
+-- rebuilds it instead.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'batteries'::regclass) THEN
+        ALTER TABLE batteries ALTER COLUMN postcode TYPE SMALLINT USING postcode::smallint;
+    END IF;
+END
+$$;
@@ -0,0 +1,12 @@
+-- Idempotency keys of POST /api/batteries requests and the ids of the batteries each created.
+-- A retried request claims its key with INSERT ... ON CONFLICT DO NOTHING in the same
+-- transaction as the batteries, so a replay is one primary key lookup instead of new rows.
+-- Rows older than vpp.create.idempotency.retention are purged.
+CREATE TABLE IF NOT EXISTS battery_requests (
+    idempotency_key VARCHAR(255)             NOT NULL,
+    battery_ids     BIGINT[]                 NOT NULL,
+    created_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    CONSTRAINT battery_requests_pkey PRIMARY KEY (idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_battery_requests_created_at ON battery_requests (created_at);
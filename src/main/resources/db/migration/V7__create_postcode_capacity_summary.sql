@@ -0,0 +1,95 @@
+-- Battery count and capacity totals per postcode, so unfiltered range totals and statistics read
+-- at most 10,000 rows instead of every battery. Statement-level triggers keep it up to date in
+-- the transaction that writes the batteries, whichever path the write takes (JPA batches,
+-- INSERT ... ON CONFLICT, ad-hoc SQL). Inserts add their totals with one upsert per statement;
+-- updates and deletes, which no API issues, recompute the postcodes they touched. The
+-- reconciliation job compares the table with batteries and rebuilds it if they differ.
+CREATE TABLE IF NOT EXISTS postcode_capacity_summary (
+    postcode       SMALLINT NOT NULL,
+    battery_count  BIGINT   NOT NULL,
+    total_capacity BIGINT   NOT NULL,
+    min_capacity   INTEGER,
+    max_capacity   INTEGER,
+    CONSTRAINT postcode_capacity_summary_pkey PRIMARY KEY (postcode)
+);
+
+-- Block writes until the triggers exist, so no battery is missed between the copy and the triggers
+LOCK TABLE batteries IN SHARE ROW EXCLUSIVE MODE;
+
+INSERT INTO postcode_capacity_summary (postcode, battery_count, total_capacity, min_capacity, max_capacity)
+SELECT postcode, COUNT(*), COALESCE(SUM(capacity), 0), MIN(capacity), MAX(capacity)
+FROM batteries
+GROUP BY postcode
+ON CONFLICT (postcode) DO NOTHING;
+
+-- Rows are upserted in postcode order so concurrent writers lock summary rows in the same order
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_add() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO postcode_capacity_summary AS s (postcode, battery_count, total_capacity, min_capacity, max_capacity)
+    SELECT postcode, COUNT(*), COALESCE(SUM(capacity), 0), MIN(capacity), MAX(capacity)
+    FROM added
+    GROUP BY postcode
+    ORDER BY postcode
+    ON CONFLICT (postcode) DO UPDATE SET
+        battery_count = s.battery_count + EXCLUDED.battery_count,
+        total_capacity = s.total_capacity + EXCLUDED.total_capacity,
+        min_capacity = LEAST(s.min_capacity, EXCLUDED.min_capacity),
+        max_capacity = GREATEST(s.max_capacity, EXCLUDED.max_capacity);
+    RETURN NULL;
+END
+$$;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_recompute(postcodes SMALLINT[]) RETURNS void
+LANGUAGE sql AS $$
+    DELETE FROM postcode_capacity_summary WHERE postcode = ANY (postcodes);
+    INSERT INTO postcode_capacity_summary (postcode, battery_count, total_capacity, min_capacity, max_capacity)
+    SELECT postcode, COUNT(*), COALESCE(SUM(capacity), 0), MIN(capacity), MAX(capacity)
+    FROM batteries
+    WHERE postcode = ANY (postcodes)
+    GROUP BY postcode;
+$$;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_remove() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    PERFORM postcode_capacity_summary_recompute(ARRAY(SELECT DISTINCT postcode FROM removed));
+    RETURN NULL;
+END
+$$;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_change() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    PERFORM postcode_capacity_summary_recompute(
+            ARRAY(SELECT postcode FROM removed UNION SELECT postcode FROM added));
+    RETURN NULL;
+END
+$$;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_clear() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    TRUNCATE postcode_capacity_summary;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS batteries_summary_insert ON batteries;
+CREATE TRIGGER batteries_summary_insert AFTER INSERT ON batteries
+    REFERENCING NEW TABLE AS added
+    FOR EACH STATEMENT EXECUTE FUNCTION postcode_capacity_summary_add();
+
+DROP TRIGGER IF EXISTS batteries_summary_delete ON batteries;
+CREATE TRIGGER batteries_summary_delete AFTER DELETE ON batteries
+    REFERENCING OLD TABLE AS removed
+    FOR EACH STATEMENT EXECUTE FUNCTION postcode_capacity_summary_remove();
+
+DROP TRIGGER IF EXISTS batteries_summary_update ON batteries;
+CREATE TRIGGER batteries_summary_update AFTER UPDATE ON batteries
+    REFERENCING OLD TABLE AS removed NEW TABLE AS added
+    FOR EACH STATEMENT EXECUTE FUNCTION postcode_capacity_summary_change();
+
+DROP TRIGGER IF EXISTS batteries_summary_truncate ON batteries;
+CREATE TRIGGER batteries_summary_truncate AFTER TRUNCATE ON batteries
+    FOR EACH STATEMENT EXECUTE FUNCTION postcode_capacity_summary_clear();
@@ -0,0 +1,88 @@
+-- The V7 insert trigger upserted summary rows in the writing transaction. A create that JPA sends
+-- as several batched statements locked one set of postcodes per statement, so concurrent creates
+-- could take the same rows in opposite orders and deadlock, and any two creates touching the same
+-- postcode waited on each other until commit. Inserts now append their per-postcode totals to
+-- postcode_capacity_summary_delta, which takes no row locks. A scheduled fold moves deltas into
+-- the summary in one ordered statement, and readers use postcode_capacity_summary_current, which
+-- combines both tables, so totals stay exact between folds.
+CREATE TABLE IF NOT EXISTS postcode_capacity_summary_delta (
+    postcode       SMALLINT NOT NULL,
+    battery_count  BIGINT   NOT NULL,
+    total_capacity BIGINT   NOT NULL,
+    min_capacity   INTEGER,
+    max_capacity   INTEGER
+);
+
+CREATE INDEX IF NOT EXISTS idx_postcode_capacity_summary_delta_postcode
+    ON postcode_capacity_summary_delta (postcode);
+
+CREATE OR REPLACE VIEW postcode_capacity_summary_current AS
+SELECT postcode,
+       SUM(battery_count)::bigint  AS battery_count,
+       SUM(total_capacity)::bigint AS total_capacity,
+       MIN(min_capacity)           AS min_capacity,
+       MAX(max_capacity)           AS max_capacity
+FROM (SELECT postcode, battery_count, total_capacity, min_capacity, max_capacity
+      FROM postcode_capacity_summary
+      UNION ALL
+      SELECT postcode, battery_count, total_capacity, min_capacity, max_capacity
+      FROM postcode_capacity_summary_delta) summary_rows
+GROUP BY postcode;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_add() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO postcode_capacity_summary_delta (postcode, battery_count, total_capacity, min_capacity, max_capacity)
+    SELECT postcode, COUNT(*), COALESCE(SUM(capacity), 0), MIN(capacity), MAX(capacity)
+    FROM added
+    GROUP BY postcode;
+    RETURN NULL;
+END
+$$;
+
+-- Folds and recomputes both rewrite summary rows and delete deltas; the advisory lock serialises them
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_recompute(postcodes SMALLINT[]) RETURNS void
+LANGUAGE sql AS $$
+    SELECT pg_advisory_xact_lock(hashtext('postcode_capacity_summary'));
+    DELETE FROM postcode_capacity_summary_delta WHERE postcode = ANY (postcodes);
+    DELETE FROM postcode_capacity_summary WHERE postcode = ANY (postcodes);
+    INSERT INTO postcode_capacity_summary (postcode, battery_count, total_capacity, min_capacity, max_capacity)
+    SELECT postcode, COUNT(*), COALESCE(SUM(capacity), 0), MIN(capacity), MAX(capacity)
+    FROM batteries
+    WHERE postcode = ANY (postcodes)
+    GROUP BY postcode;
+$$;
+
+-- Moves committed deltas into the summary and returns the number of postcodes updated
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_fold() RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    folded integer;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('postcode_capacity_summary'));
+    WITH moved AS (
+        DELETE FROM postcode_capacity_summary_delta
+        RETURNING postcode, battery_count, total_capacity, min_capacity, max_capacity
+    )
+    INSERT INTO postcode_capacity_summary AS s (postcode, battery_count, total_capacity, min_capacity, max_capacity)
+    SELECT postcode, SUM(battery_count)::bigint, SUM(total_capacity)::bigint, MIN(min_capacity), MAX(max_capacity)
+    FROM moved
+    GROUP BY postcode
+    ORDER BY postcode
+    ON CONFLICT (postcode) DO UPDATE SET
+        battery_count = s.battery_count + EXCLUDED.battery_count,
+        total_capacity = s.total_capacity + EXCLUDED.total_capacity,
+        min_capacity = LEAST(s.min_capacity, EXCLUDED.min_capacity),
+        max_capacity = GREATEST(s.max_capacity, EXCLUDED.max_capacity);
+    GET DIAGNOSTICS folded = ROW_COUNT;
+    RETURN folded;
+END
+$$;
+
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_clear() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    TRUNCATE postcode_capacity_summary, postcode_capacity_summary_delta;
+    RETURN NULL;
+END
+$$;
@@ -0,0 +1,31 @@
+-- The V8 recompute deleted the deltas and re-aggregated batteries in separate statements, each
+-- with its own snapshot under READ COMMITTED. An insert committing between them had its delta
+-- survive the delete and its batteries counted by the re-aggregation, so it was counted twice.
+-- The delete and the re-aggregation now run as one statement, so they see the same committed
+-- inserts: each is either folded into the recount or left as a pending delta, never both.
+CREATE OR REPLACE FUNCTION postcode_capacity_summary_recompute(postcodes SMALLINT[]) RETURNS void
+LANGUAGE sql AS $$
+    SELECT pg_advisory_xact_lock(hashtext('postcode_capacity_summary'));
+    WITH actual AS (
+        SELECT postcode, COUNT(*) AS battery_count, COALESCE(SUM(capacity), 0) AS total_capacity,
+               MIN(capacity) AS min_capacity, MAX(capacity) AS max_capacity
+        FROM batteries
+        WHERE postcode = ANY (postcodes)
+        GROUP BY postcode
+    ), dropped_deltas AS (
+        DELETE FROM postcode_capacity_summary_delta WHERE postcode = ANY (postcodes)
+    ), emptied AS (
+        DELETE FROM postcode_capacity_summary s
+        WHERE s.postcode = ANY (postcodes)
+          AND NOT EXISTS (SELECT 1 FROM actual a WHERE a.postcode = s.postcode)
+    )
+    INSERT INTO postcode_capacity_summary AS s (postcode, battery_count, total_capacity, min_capacity, max_capacity)
+    SELECT postcode, battery_count, total_capacity, min_capacity, max_capacity
+    FROM actual
+    ORDER BY postcode
+    ON CONFLICT (postcode) DO UPDATE SET
+        battery_count = EXCLUDED.battery_count,
+        total_capacity = EXCLUDED.total_capacity,
+        min_capacity = EXCLUDED.min_capacity,
+        max_capacity = EXCLUDED.max_capacity;
+$$;
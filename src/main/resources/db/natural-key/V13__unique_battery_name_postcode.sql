@@ -0,0 +1,16 @@
+-- Optional: makes (name, postcode) the natural key of a battery, so creates with
+-- vpp.create.natural-key.enabled=true insert only batteries that are not registered yet.
+-- Enable by adding classpath:db/natural-key to spring.flyway.locations. The version is above
+-- every core migration and db/partitioning's V12, so it applies in order to a migrated database.
+-- Duplicates left by earlier retries are removed first, keeping the oldest row of each.
+-- The unique index is built while writes are blocked, so run this during a write pause.
+-- Enabling db/partitioning after this one needs spring.flyway.out-of-order=true for that run;
+-- the rebuilt table keeps the unique index.
+DELETE FROM batteries b
+USING batteries d
+WHERE b.name = d.name
+  AND b.postcode = d.postcode
+  AND b.id > d.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_batteries_name_postcode ON batteries (name, postcode);
+ANALYZE batteries;
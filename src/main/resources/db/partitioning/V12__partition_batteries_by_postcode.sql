@@ -0,0 +1,62 @@
+-- Optional: range-partitions batteries by the first postcode digit (one partition per state
+-- block) so postcode range searches only scan the partitions they overlap. Enable by adding
+-- classpath:db/partitioning to spring.flyway.locations. The version is above every core
+-- migration, so this also applies in order to a database that is already migrated.
+-- The table is rebuilt, so writes should be stopped while this runs. The primary key must include
+-- the partition key; ids stay unique because they all come from batteries_seq.
+ALTER TABLE batteries RENAME TO batteries_unpartitioned;
+ALTER TABLE batteries_unpartitioned RENAME CONSTRAINT batteries_pkey TO batteries_unpartitioned_pkey;
+ALTER INDEX idx_batteries_name_id RENAME TO idx_batteries_unpartitioned_name_id;
+ALTER INDEX idx_batteries_postcode_capacity RENAME TO idx_batteries_unpartitioned_postcode_capacity;
+ALTER INDEX IF EXISTS uq_batteries_name_postcode RENAME TO uq_batteries_unpartitioned_name_postcode;
+
+CREATE TABLE batteries (
+    id BIGINT NOT NULL,
+    capacity INTEGER,
+    name VARCHAR(255),
+    postcode SMALLINT NOT NULL,
+    CONSTRAINT batteries_pkey PRIMARY KEY (id, postcode)
+) PARTITION BY RANGE (postcode);
+
+CREATE TABLE batteries_p0 PARTITION OF batteries FOR VALUES FROM (MINVALUE) TO (1000);
+CREATE TABLE batteries_p1 PARTITION OF batteries FOR VALUES FROM (1000) TO (2000);
+CREATE TABLE batteries_p2 PARTITION OF batteries FOR VALUES FROM (2000) TO (3000);
+CREATE TABLE batteries_p3 PARTITION OF batteries FOR VALUES FROM (3000) TO (4000);
+CREATE TABLE batteries_p4 PARTITION OF batteries FOR VALUES FROM (4000) TO (5000);
+CREATE TABLE batteries_p5 PARTITION OF batteries FOR VALUES FROM (5000) TO (6000);
+CREATE TABLE batteries_p6 PARTITION OF batteries FOR VALUES FROM (6000) TO (7000);
+CREATE TABLE batteries_p7 PARTITION OF batteries FOR VALUES FROM (7000) TO (8000);
+CREATE TABLE batteries_p8 PARTITION OF batteries FOR VALUES FROM (8000) TO (9000);
+CREATE TABLE batteries_p9 PARTITION OF batteries FOR VALUES FROM (9000) TO (MAXVALUE);
+
+-- The new table has no summary triggers yet, and postcode_capacity_summary already counts these rows
+INSERT INTO batteries (id, capacity, name, postcode)
+SELECT id, capacity, name, postcode FROM batteries_unpartitioned;
+
+-- Partitioned indexes, created on every partition. The natural key contains the partition key,
+-- so its unique index carries over when db/natural-key was applied before this.
+CREATE INDEX idx_batteries_name_id ON batteries (name, id) INCLUDE (postcode, capacity);
+CREATE INDEX idx_batteries_postcode_capacity ON batteries (postcode, capacity) INCLUDE (name);
+DO $$
+BEGIN
+    IF to_regclass('uq_batteries_unpartitioned_name_postcode') IS NOT NULL THEN
+        CREATE UNIQUE INDEX uq_batteries_name_postcode ON batteries (name, postcode);
+    END IF;
+END
+$$;
+DROP TABLE batteries_unpartitioned;
+
+-- The summary triggers were dropped with the old table
+CREATE TRIGGER batteries_summary_insert AFTER INSERT ON batteries
+    REFERENCING NEW TABLE AS added
+    FOR EACH STATEMENT EXECUTE FUNCTION postcode_capacity_summary_add();
+CREATE TRIGGER batteries_summary_delete AFTER DELETE ON batteries
+    REFERENCING OLD TABLE AS removed
+    FOR EACH STATEMENT EXECUTE FUNCTION postcode_capacity_summary_remove();
+CREATE TRIGGER batteries_summary_update AFTER UPDATE ON batteries
+    REFERENCING OLD TABLE AS removed NEW TABLE AS added
+    FOR EACH STATEMENT EXECUTE FUNCTION postcode_capacity_summary_change();
+CREATE TRIGGER batteries_summary_truncate AFTER TRUNCATE ON batteries
+    FOR EACH STATEMENT EXECUTE FUNCTION postcode_capacity_summary_clear();
+
+ANALYZE batteries;
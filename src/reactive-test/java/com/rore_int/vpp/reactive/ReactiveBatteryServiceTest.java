@@ -0,0 +1,252 @@
+package com.rore_int.vpp.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryIngestSummary;
+import com.rore_int.vpp.dto.BatteryNameCapacity;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.exception.ValidationException;
+import com.rore_int.vpp.metrics.BatteryMetrics;
+import com.rore_int.vpp.service.BatteriesSavedEvent;
+import com.rore_int.vpp.service.BatteryService;
+import com.rore_int.vpp.service.IdempotentBatteryWriter;
+import com.rore_int.vpp.service.PostcodeCapacitySummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveBatteryServiceTest {
+
+    @Mock
+    private ReactiveBatteryRepository batteryRepository;
+
+    @Mock
+    private BatteryService batteryService;
+
+    @Mock
+    private PostcodeCapacitySummary postcodeCapacitySummary;
+
+    @Mock
+    private IdempotentBatteryWriter idempotentBatteryWriter;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ReactiveBatteryService reactiveBatteryService;
+
+    @BeforeEach
+    void setUp() {
+        reactiveBatteryService = new ReactiveBatteryService(batteryRepository, batteryService, postcodeCapacitySummary,
+                idempotentBatteryWriter, transactionalOperator, eventPublisher,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                new BatteryMetrics(new SimpleMeterRegistry()), 2, 1);
+    }
+
+    @Test
+    void createBatteries_shouldInsertInChunksWithinOneTransaction() {
+        List<Integer> chunkSizes = new ArrayList<>();
+        stubInsert(chunkSizes);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(reactiveBatteryService.createBatteries(Flux.just(
+                        battery("Cannington", "6107", 13500),
+                        battery("Midland", "6057", 50500),
+                        battery("Hay Street", "6000", 67000)), null))
+                .assertNext(saved -> {
+                    assertEquals(List.of("Cannington", "Midland", "Hay Street"),
+                            saved.stream().map(Battery::getName).toList());
+                    assertNotNull(saved.get(2).getId());
+                })
+                .verifyComplete();
+
+        assertEquals(List.of(2, 1), chunkSizes);
+        verify(transactionalOperator).transactional(any(Mono.class));
+        verify(eventPublisher).publishEvent(any(BatteriesSavedEvent.class));
+    }
+
+    @Test
+    void createBatteries_shouldFailOnInvalidBatteryWithServletMessage() {
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(reactiveBatteryService.createBatteries(Flux.just(battery("", "6107", 13500)), null))
+                .expectErrorSatisfies(error -> {
+                    assertInstanceOf(ValidationException.class, error);
+                    assertEquals("name: Name is mandatory", error.getMessage());
+                })
+                .verify();
+
+        verify(batteryRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void createBatteries_shouldRejectEmptyBody() {
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(reactiveBatteryService.createBatteries(Flux.empty(), null))
+                .expectError(ValidationException.class)
+                .verify();
+    }
+
+    @Test
+    void createBatteries_shouldMapDataAccessExceptionToDatabaseException() {
+        when(batteryRepository.insertAll(anyList()))
+                .thenReturn(Flux.error(new DataAccessResourceFailureException("connection refused")));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(reactiveBatteryService.createBatteries(Flux.just(battery("Midland", "6057", 50500)), null))
+                .expectError(DatabaseException.class)
+                .verify();
+    }
+
+    @Test
+    void createBatteries_shouldDelegateKeyedCreatesToJdbcService() {
+        List<Battery> saved = List.of(battery("Midland", "6057", 50500));
+        when(batteryService.createBatteries(anyList(), eq("key-1"))).thenReturn(CompletableFuture.completedFuture(saved));
+
+        StepVerifier.create(reactiveBatteryService.createBatteries(Flux.just(battery("Midland", "6057", 50500)), "key-1"))
+                .expectNext(saved)
+                .verifyComplete();
+
+        verifyNoInteractions(batteryRepository, transactionalOperator);
+    }
+
+    @Test
+    void ingest_shouldReportRejectedLinesAndCommitTheRest() {
+        List<Integer> chunkSizes = new ArrayList<>();
+        stubInsert(chunkSizes);
+
+        StepVerifier.create(reactiveBatteryService.ingest(Flux.just(
+                        "{\"name\":\"Cannington\",\"postcode\":\"6107\",\"capacity\":13500}",
+                        "{\"name\":\"Midland\",\"postcode\":\"60\",\"capacity\":50500}",
+                        "",
+                        "not json",
+                        "{\"name\":\"Hay Street\",\"postcode\":\"6000\",\"capacity\":67000}")))
+                .assertNext((BatteryIngestSummary summary) -> {
+                    assertEquals(2, summary.getAccepted());
+                    assertEquals(2, summary.getRejected());
+                    // maxReportedRejections is 1
+                    assertEquals(1, summary.getRejections().size());
+                    assertEquals(2, summary.getRejections().get(0).getLine());
+                })
+                .verifyComplete();
+
+        assertEquals(List.of(2), chunkSizes);
+    }
+
+    @Test
+    void ingest_shouldCountExistingNaturalKeysAsDuplicatesWhenEnabled() {
+        when(idempotentBatteryWriter.isNaturalKeyEnabled()).thenReturn(true);
+        // Cannington is already stored
+        when(batteryRepository.insertIfAbsent(anyList())).thenAnswer(invocation -> {
+            List<Battery> chunk = invocation.getArgument(0);
+            return Flux.fromIterable(chunk).filter(battery -> !battery.getName().equals("Cannington"));
+        });
+
+        StepVerifier.create(reactiveBatteryService.ingest(Flux.just(
+                        "{\"name\":\"Cannington\",\"postcode\":\"6107\",\"capacity\":13500}",
+                        "{\"name\":\"Midland\",\"postcode\":\"6057\",\"capacity\":50500}",
+                        "{\"name\":\"Cannington\",\"postcode\":\"6107\",\"capacity\":13500}")))
+                .assertNext((BatteryIngestSummary summary) -> {
+                    assertEquals(1, summary.getAccepted());
+                    assertEquals(2, summary.getDuplicates());
+                    assertEquals(0, summary.getRejected());
+                })
+                .verifyComplete();
+
+        verify(batteryRepository, never()).insertAll(anyList());
+        verify(eventPublisher, times(1)).publishEvent(any(BatteriesSavedEvent.class));
+    }
+
+    @Test
+    void searchBatteriesByPostcodeRange_shouldUseSummaryForUnfilteredTotals() {
+        when(postcodeCapacitySummary.isEnabled()).thenReturn(true);
+        when(batteryRepository.aggregateSummary("6000", "6099"))
+                .thenReturn(Mono.just(new BatteryCapacityStats(2L, 3000L, 1500.0)));
+        when(batteryRepository.findNames("6000", "6099", null, null)).thenReturn(Flux.just("Cannington", "Midland"));
+
+        StepVerifier.create(reactiveBatteryService.searchBatteriesByPostcodeRange("6000", "6099", null, null, true))
+                .assertNext(response -> {
+                    assertEquals(List.of("Cannington", "Midland"), response.getBatteryNames());
+                    assertEquals(3000L, response.getTotalCapacity());
+                    assertEquals(1500.0, response.getAverageCapacity());
+                })
+                .verifyComplete();
+
+        verify(batteryRepository, never()).aggregate(any(), any(), any(), any());
+    }
+
+    @Test
+    void streamBatteriesByPostcodeRange_shouldReportTotalsAfterLastName() {
+        when(batteryRepository.streamNameCapacity("6000", "6099", 1000, null)).thenReturn(Flux.just(
+                new BatteryNameCapacity("Cannington", 13500),
+                new BatteryNameCapacity("Midland", 50500)));
+        List<BatteryCapacityStats> totals = new ArrayList<>();
+
+        StepVerifier.create(reactiveBatteryService.streamBatteriesByPostcodeRange("6000", "6099", 1000, null, totals::add))
+                .expectNext("Cannington", "Midland")
+                .verifyComplete();
+
+        assertEquals(1, totals.size());
+        assertEquals(64000L, totals.get(0).getTotalCapacity());
+        assertEquals(32000.0, totals.get(0).getAverageCapacity());
+    }
+
+    @Test
+    void streamBatteriesByPostcodeRange_shouldAverageOnlyBatteriesWithACapacity() {
+        when(batteryRepository.streamNameCapacity("6000", "6099", null, null)).thenReturn(Flux.just(
+                new BatteryNameCapacity("Cannington", 13500),
+                new BatteryNameCapacity("Kelmscott", null),
+                new BatteryNameCapacity("Midland", 50500)));
+        List<BatteryCapacityStats> totals = new ArrayList<>();
+
+        StepVerifier.create(reactiveBatteryService.streamBatteriesByPostcodeRange("6000", "6099", null, null, totals::add))
+                .expectNext("Cannington", "Kelmscott", "Midland")
+                .verifyComplete();
+
+        assertEquals(3L, totals.get(0).getCount());
+        assertEquals(64000L, totals.get(0).getTotalCapacity());
+        assertEquals(32000.0, totals.get(0).getAverageCapacity());
+    }
+
+    private void stubInsert(List<Integer> chunkSizes) {
+        AtomicLong ids = new AtomicLong();
+        when(batteryRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Battery> chunk = invocation.getArgument(0);
+            chunkSizes.add(chunk.size());
+            chunk.forEach(battery -> battery.setId(ids.incrementAndGet()));
+            return Flux.fromIterable(chunk);
+        });
+    }
+
+    private static Battery battery(String name, String postcode, int capacity) {
+        Battery battery = new Battery();
+        battery.setName(name);
+        battery.setPostcode(postcode);
+        battery.setCapacity(capacity);
+        return battery;
+    }
+}
@@ -0,0 +1,184 @@
+package com.rore_int.vpp.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryIngestSummary;
+import com.rore_int.vpp.dto.BatteryNamePage;
+import com.rore_int.vpp.dto.BatterySearchQuery;
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.dto.BatteryStatisticsResponse;
+import com.rore_int.vpp.dto.SearchCacheStats;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.logging.LogSampler;
+import com.rore_int.vpp.service.BatterySearchBatchService;
+import com.rore_int.vpp.service.BatteryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@code /api/batteries} API on WebFlux, active when the application runs as a reactive web
+ * application (the {@code reactive} profile). Creates, ingest and range searches are non-blocking
+ * end to end. Paging, batch search and statistics reuse the JDBC services on the bounded elastic
+ * scheduler, so their behaviour is identical to the servlet variant.
+ */
+@RestController
+@RequestMapping("/api/batteries")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBatteryController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBatteryController.class);
+    // Names are written in groups so each network write carries more than one name
+    private static final int NAMES_PER_BUFFER = 256;
+    private final ReactiveBatteryService reactiveBatteryService;
+    private final BatteryService batteryService;
+    private final BatterySearchBatchService batterySearchBatchService;
+    private final ObjectMapper objectMapper;
+    private final LogSampler logSampler;
+
+    public ReactiveBatteryController(ReactiveBatteryService reactiveBatteryService, BatteryService batteryService,
+                                     BatterySearchBatchService batterySearchBatchService,
+                                     ObjectMapper objectMapper, LogSampler logSampler) {
+        this.reactiveBatteryService = reactiveBatteryService;
+        this.batteryService = batteryService;
+        this.batterySearchBatchService = batterySearchBatchService;
+        this.objectMapper = objectMapper;
+        this.logSampler = logSampler;
+    }
+
+    @PostMapping
+    public Mono<List<Battery>> createBatteries(
+            // Optional so that an empty array reaches the service's "cannot be null or empty" check
+            @RequestBody(required = false) Flux<Battery> batteries,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        long start = System.nanoTime();
+        boolean sampled = logSampler.sample("POST /api/batteries");
+        return reactiveBatteryService.createBatteries(batteries, idempotencyKey)
+                .doOnSuccess(savedBatteries -> {
+                    if (logSampler.isSlow(start)) {
+                        logger.warn("Slow creation of {} batteries took {} ms",
+                                savedBatteries.size(), LogSampler.elapsedMillis(start));
+                    } else if (sampled) {
+                        logger.info("Successfully processed creation of {} batteries", savedBatteries.size());
+                    }
+                })
+                .doOnError(throwable ->
+                        logger.error("Error processing battery creation: {}", throwable.getMessage(), throwable));
+    }
+
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<BatteryIngestSummary> streamBatteries(@RequestBody Flux<String> lines) {
+        logger.info("Received request to stream batteries");
+        return reactiveBatteryService.ingest(lines);
+    }
+
+    @GetMapping("/search")
+    public Mono<BatterySearchResponse> searchBatteriesByPostcodeRange(
+            @RequestParam String minPostcode,
+            @RequestParam String maxPostcode,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) Integer maxCapacity,
+            @RequestParam(defaultValue = "true") boolean includeNames) {
+        if (logSampler.sample("GET /api/batteries/search")) {
+            logger.info("Received request to search batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, includeNames: {}",
+                    minPostcode, maxPostcode, minCapacity, maxCapacity, includeNames);
+        }
+        return reactiveBatteryService.searchBatteriesByPostcodeRange(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, includeNames);
+    }
+
+    @PostMapping("/search/batch")
+    public Mono<List<BatterySearchResponse>> searchBatteriesByPostcodeRanges(
+            @RequestBody List<BatterySearchQuery> queries,
+            @RequestParam(defaultValue = "true") boolean includeNames) {
+        return blocking(() -> batterySearchBatchService.search(queries, includeNames));
+    }
+
+    @GetMapping(value = "/search", params = "pageSize")
+    public Mono<BatteryNamePage> searchBatteryPageByPostcodeRange(
+            @RequestParam String minPostcode,
+            @RequestParam String maxPostcode,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) Integer maxCapacity,
+            @RequestParam int pageSize,
+            @RequestParam(required = false) String after) {
+        return blocking(() -> batteryService.searchBatteryNamePage(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, pageSize, after));
+    }
+
+    /**
+     * Writes the same JSON object as {@code GET /search}, but names are sent as they are read,
+     * at the pace the client consumes them. Totals follow the names.
+     */
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> streamBatteriesByPostcodeRange(
+            @RequestParam String minPostcode,
+            @RequestParam String maxPostcode,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) Integer maxCapacity,
+            ServerHttpResponse response) {
+        if (logSampler.sample("GET /api/batteries/search/stream")) {
+            logger.info("Received request to stream batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}",
+                    minPostcode, maxPostcode, minCapacity, maxCapacity);
+        }
+        // Validate up front: once streaming starts the status can no longer change to 400
+        batteryService.validateSearchParameters(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        DataBufferFactory buffers = response.bufferFactory();
+        AtomicReference<BatteryCapacityStats> totals = new AtomicReference<>();
+        Flux<String> names = reactiveBatteryService.streamBatteriesByPostcodeRange(
+                        minPostcode, maxPostcode, minCapacity, maxCapacity, totals::set)
+                .index((index, name) -> (index == 0 ? "" : ",") + json(name))
+                .buffer(NAMES_PER_BUFFER)
+                .map(group -> String.join("", group));
+        return Flux.concat(
+                        Mono.just("{\"batteryNames\":["),
+                        names,
+                        Mono.fromSupplier(() -> "],\"totalCapacity\":" + totals.get().getTotalCapacity()
+                                + ",\"averageCapacity\":" + totals.get().getAverageCapacity() + "}"))
+                .map(text -> buffers.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @GetMapping("/statistics")
+    public Mono<BatteryStatisticsResponse> getStatisticsByPostcode(
+            @RequestParam String minPostcode,
+            @RequestParam String maxPostcode,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) Integer maxCapacity,
+            @RequestParam(defaultValue = "4") int prefixLength,
+            @RequestParam(defaultValue = "true") boolean includeMedian) {
+        return blocking(() -> batteryService.getStatisticsByPostcode(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, prefixLength, includeMedian));
+    }
+
+    @GetMapping("/search/cache-stats")
+    public Mono<SearchCacheStats> getSearchCacheStats() {
+        return Mono.fromSupplier(batteryService::getSearchCacheStats);
+    }
+
+    // JDBC calls must never run on an event-loop thread
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private String json(String value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
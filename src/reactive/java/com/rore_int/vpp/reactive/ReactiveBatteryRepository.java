@@ -0,0 +1,153 @@
+package com.rore_int.vpp.reactive;
+
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryNameCapacity;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.validation.Postcodes;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Non-blocking access to {@code batteries} over R2DBC. The SQL mirrors the JPQL in
+ * {@link com.rore_int.vpp.repository.BatteryRepository}, except that capacity conditions are only
+ * added when a bound is given, because R2DBC needs a typed null for every absent parameter.
+ */
+@Repository
+public class ReactiveBatteryRepository {
+    // Same id scheme as BatteryRepositoryImpl: one nextval per row never collides with Hibernate's pooled blocks
+    private static final String INSERT = "INSERT INTO batteries (id, name, postcode, capacity) "
+            + "SELECT nextval('batteries_seq'), t.name, t.postcode, t.capacity "
+            + "FROM unnest($1::text[], $2::smallint[], $3::integer[]) AS t(name, postcode, capacity) "
+            + "RETURNING id, name, postcode, capacity";
+    // Needs the unique (name, postcode) index from db/natural-key
+    private static final String INSERT_IF_ABSENT = "INSERT INTO batteries (id, name, postcode, capacity) "
+            + "SELECT nextval('batteries_seq'), t.name, t.postcode, t.capacity "
+            + "FROM unnest($1::text[], $2::smallint[], $3::integer[]) AS t(name, postcode, capacity) "
+            + "ON CONFLICT (name, postcode) DO NOTHING "
+            + "RETURNING id, name, postcode, capacity";
+    // Same lock order as BatteryRepositoryImpl, so concurrent batches cannot deadlock on the unique index
+    private static final Comparator<Battery> INSERT_ORDER = Comparator.comparing(Battery::getName)
+            .thenComparingInt(battery -> Postcodes.parse(battery.getPostcode()));
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveBatteryRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<String> findNames(String minPostcode, String maxPostcode, Integer minCapacity, Integer maxCapacity) {
+        return bind(databaseClient.sql("SELECT name FROM batteries WHERE "
+                        + where(minCapacity, maxCapacity) + " ORDER BY name"),
+                minPostcode, maxPostcode, minCapacity, maxCapacity)
+                .map(row -> row.get("name", String.class))
+                .all();
+    }
+
+    public Flux<BatteryNameCapacity> streamNameCapacity(String minPostcode, String maxPostcode,
+                                                        Integer minCapacity, Integer maxCapacity) {
+        return bind(databaseClient.sql("SELECT name, capacity FROM batteries WHERE "
+                        + where(minCapacity, maxCapacity) + " ORDER BY name"),
+                minPostcode, maxPostcode, minCapacity, maxCapacity)
+                .map(row -> new BatteryNameCapacity(row.get("name", String.class), row.get("capacity", Integer.class)))
+                .all();
+    }
+
+    public Mono<BatteryCapacityStats> aggregate(String minPostcode, String maxPostcode,
+                                                Integer minCapacity, Integer maxCapacity) {
+        return bind(databaseClient.sql("SELECT COUNT(*) AS battery_count, SUM(capacity) AS total_capacity, "
+                        + "COUNT(capacity) AS capacity_count FROM batteries WHERE " + where(minCapacity, maxCapacity)),
+                minPostcode, maxPostcode, minCapacity, maxCapacity)
+                .map(ReactiveBatteryRepository::stats)
+                .one();
+    }
+
+    // Unfiltered totals from the trigger-maintained postcode capacity summary, pending deltas included (V7 to V10)
+    public Mono<BatteryCapacityStats> aggregateSummary(String minPostcode, String maxPostcode) {
+        return databaseClient.sql("SELECT SUM(battery_count)::bigint AS battery_count, "
+                        + "SUM(total_capacity)::bigint AS total_capacity, SUM(capacity_count)::bigint AS capacity_count "
+                        + "FROM postcode_capacity_summary_current "
+                        + "WHERE postcode BETWEEN :minPostcode AND :maxPostcode")
+                .bind("minPostcode", Postcodes.parse(minPostcode))
+                .bind("maxPostcode", Postcodes.parse(maxPostcode))
+                .map(ReactiveBatteryRepository::stats)
+                .one();
+    }
+
+    /**
+     * Inserts the batteries with one statement and returns the stored rows, ids included. Callers
+     * pass bounded chunks so statement size stays fixed however many batteries a request carries.
+     */
+    public Flux<Battery> insertAll(List<Battery> batteries) {
+        return insert(INSERT, batteries);
+    }
+
+    /**
+     * Like {@link #insertAll}, but skips batteries whose (name, postcode) is already stored, and
+     * returns only the rows it inserted.
+     */
+    public Flux<Battery> insertIfAbsent(List<Battery> batteries) {
+        return insert(INSERT_IF_ABSENT, batteries.stream().sorted(INSERT_ORDER).toList());
+    }
+
+    private Flux<Battery> insert(String sql, List<Battery> batteries) {
+        String[] names = batteries.stream().map(Battery::getName).toArray(String[]::new);
+        Short[] postcodes = batteries.stream()
+                .map(battery -> (short) Postcodes.parse(battery.getPostcode()))
+                .toArray(Short[]::new);
+        Integer[] capacities = batteries.stream().map(Battery::getCapacity).toArray(Integer[]::new);
+        return databaseClient.sql(sql)
+                .bind(0, names)
+                .bind(1, postcodes)
+                .bind(2, capacities)
+                .map(row -> {
+                    Battery battery = new Battery();
+                    battery.setId(row.get("id", Long.class));
+                    battery.setName(row.get("name", String.class));
+                    battery.setPostcode(Postcodes.format(row.get("postcode", Short.class)));
+                    battery.setCapacity(row.get("capacity", Integer.class));
+                    return battery;
+                })
+                .all();
+    }
+
+    private static String where(Integer minCapacity, Integer maxCapacity) {
+        StringBuilder where = new StringBuilder("postcode BETWEEN :minPostcode AND :maxPostcode");
+        if (minCapacity != null) {
+            where.append(" AND capacity >= :minCapacity");
+        }
+        if (maxCapacity != null) {
+            where.append(" AND capacity <= :maxCapacity");
+        }
+        return where.toString();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                          String minPostcode, String maxPostcode,
+                                                          Integer minCapacity, Integer maxCapacity) {
+        spec = spec.bind("minPostcode", Postcodes.parse(minPostcode))
+                .bind("maxPostcode", Postcodes.parse(maxPostcode));
+        if (minCapacity != null) {
+            spec = spec.bind("minCapacity", minCapacity);
+        }
+        if (maxCapacity != null) {
+            spec = spec.bind("maxCapacity", maxCapacity);
+        }
+        return spec;
+    }
+
+    // Averages over batteries with a capacity, like AVG(capacity) in the JDBC variant
+    private static BatteryCapacityStats stats(Readable row) {
+        Long count = row.get("battery_count", Long.class);
+        Long totalCapacity = row.get("total_capacity", Long.class);
+        Long capacityCount = row.get("capacity_count", Long.class);
+        long total = totalCapacity == null ? 0 : totalCapacity;
+        long withCapacity = capacityCount == null ? 0 : capacityCount;
+        return new BatteryCapacityStats(count, total, withCapacity == 0 ? null : (double) total / withCapacity);
+    }
+}
@@ -0,0 +1,262 @@
+package com.rore_int.vpp.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryIngestSummary;
+import com.rore_int.vpp.dto.BatteryNameCapacity;
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.exception.ValidationException;
+import com.rore_int.vpp.metrics.BatteryMetrics;
+import com.rore_int.vpp.metrics.BatteryMetrics.SearchType;
+import com.rore_int.vpp.service.BatteriesSavedEvent;
+import com.rore_int.vpp.service.BatteryService;
+import com.rore_int.vpp.service.IdempotentBatteryWriter;
+import com.rore_int.vpp.service.PostcodeCapacitySummary;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link BatteryService} for the endpoints on the hot path. Request bodies
+ * are consumed as they arrive and inserted in fixed-size chunks, one chunk at a time, so a slow
+ * database slows down reading the request instead of buffering it. Validation rules, error
+ * messages and metrics are shared with the servlet variant.
+ */
+@Service
+public class ReactiveBatteryService {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBatteryService.class);
+    private final ReactiveBatteryRepository batteryRepository;
+    private final BatteryService batteryService;
+    private final PostcodeCapacitySummary postcodeCapacitySummary;
+    private final IdempotentBatteryWriter idempotentBatteryWriter;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ObjectReader batteryReader;
+    private final BatteryMetrics batteryMetrics;
+    private final int chunkSize;
+    private final int maxReportedRejections;
+
+    public ReactiveBatteryService(ReactiveBatteryRepository batteryRepository, BatteryService batteryService,
+                                  PostcodeCapacitySummary postcodeCapacitySummary,
+                                  IdempotentBatteryWriter idempotentBatteryWriter,
+                                  TransactionalOperator transactionalOperator, ApplicationEventPublisher eventPublisher,
+                                  Validator validator, ObjectMapper objectMapper, BatteryMetrics batteryMetrics,
+                                  @Value("${vpp.reactive.insert-chunk-size:500}") int chunkSize,
+                                  @Value("${vpp.ingest.max-reported-rejections:1000}") int maxReportedRejections) {
+        this.batteryRepository = batteryRepository;
+        this.batteryService = batteryService;
+        this.postcodeCapacitySummary = postcodeCapacitySummary;
+        this.idempotentBatteryWriter = idempotentBatteryWriter;
+        this.transactionalOperator = transactionalOperator;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.batteryReader = objectMapper.readerFor(Battery.class);
+        this.batteryMetrics = batteryMetrics;
+        this.chunkSize = chunkSize;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    /**
+     * Saves all batteries in one transaction, like {@link BatteryService#createBatteries}. The
+     * first invalid battery fails the request and rolls back the chunks already inserted. Keyed
+     * and natural-key creates are handed to the JDBC implementation, which already runs off the
+     * request thread, rather than reimplementing key claims and replays over R2DBC.
+     */
+    public Mono<List<Battery>> createBatteries(Flux<Battery> batteries, String idempotencyKey) {
+        Flux<Battery> valid = batteries.map(this::requireValid);
+        if (idempotencyKey != null || idempotentBatteryWriter.isNaturalKeyEnabled()) {
+            return valid.collectList()
+                    .flatMap(list -> Mono.fromFuture(() -> batteryService.createBatteries(list, idempotencyKey)));
+        }
+        Timer.Sample sample = batteryMetrics.start();
+        return valid
+                .buffer(chunkSize)
+                // concatMap requests the next chunk only after the previous insert completed
+                .concatMap(batteryRepository::insertAll)
+                .collectList()
+                .as(transactionalOperator::transactional)
+                .flatMap(saved -> saved.isEmpty()
+                        ? Mono.error(new ValidationException("Battery list cannot be null or empty"))
+                        : Mono.just(saved))
+                .onErrorMap(DataAccessException.class, e -> {
+                    logger.error("Failed to save batteries: {}", e.getMessage(), e);
+                    return new DatabaseException("Failed to save batteries", e);
+                })
+                .doOnSuccess(saved -> {
+                    eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(saved)));
+                    batteryMetrics.recordCreate(sample, saved.size(), true);
+                    logger.debug("Successfully created {} batteries", saved.size());
+                })
+                .doOnError(e -> batteryMetrics.recordCreate(sample, 0, false));
+    }
+
+    /**
+     * Ingests newline-delimited JSON with the same rules as
+     * {@link com.rore_int.vpp.service.BatteryIngestService}: invalid lines are reported and
+     * skipped, each chunk commits on its own, and with natural keys enabled already stored
+     * batteries are counted as duplicates.
+     */
+    public Mono<BatteryIngestSummary> ingest(Flux<String> lines) {
+        Timer.Sample sample = batteryMetrics.start();
+        BatteryIngestSummary summary = new BatteryIngestSummary();
+        AtomicLong lineNumber = new AtomicLong();
+        boolean naturalKeyEnabled = idempotentBatteryWriter.isNaturalKeyEnabled();
+        return lines
+                .mapNotNull(line -> {
+                    long number = lineNumber.incrementAndGet();
+                    return line.isBlank() ? null : parse(line, number, summary);
+                })
+                .buffer(chunkSize)
+                .concatMap(chunk -> (naturalKeyEnabled
+                        ? batteryRepository.insertIfAbsent(chunk)
+                        : batteryRepository.insertAll(chunk)).collectList()
+                        .onErrorMap(DataAccessException.class, e -> {
+                            logger.error("Failed to save battery chunk after {} accepted batteries: {}",
+                                    summary.getAccepted(), e.getMessage(), e);
+                            return new DatabaseException("Failed to save batteries after "
+                                    + summary.getAccepted() + " were committed", e);
+                        })
+                        .doOnNext(saved -> {
+                            summary.setAccepted(summary.getAccepted() + saved.size());
+                            summary.setDuplicates(summary.getDuplicates() + chunk.size() - saved.size());
+                            if (!saved.isEmpty()) {
+                                eventPublisher.publishEvent(new BatteriesSavedEvent(List.copyOf(saved)));
+                            }
+                        }))
+                .then(Mono.fromCallable(() -> {
+                    logger.info("Ingested battery stream: {} accepted, {} duplicates, {} rejected over {} lines",
+                            summary.getAccepted(), summary.getDuplicates(), summary.getRejected(), lineNumber.get());
+                    batteryMetrics.recordIngest(sample, summary.getAccepted(), summary.getRejected());
+                    return summary;
+                }));
+    }
+
+    public Mono<BatterySearchResponse> searchBatteriesByPostcodeRange(String minPostcode, String maxPostcode,
+                                                                      Integer minCapacity, Integer maxCapacity,
+                                                                      boolean includeNames) {
+        logger.debug("Searching batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, includeNames: {}",
+                minPostcode, maxPostcode, minCapacity, maxCapacity, includeNames);
+        batteryService.validateSearchParameters(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        Timer.Sample sample = batteryMetrics.start();
+        boolean unfiltered = minCapacity == null && maxCapacity == null;
+        Mono<BatteryCapacityStats> stats = unfiltered && postcodeCapacitySummary.isEnabled()
+                ? batteryRepository.aggregateSummary(minPostcode, maxPostcode)
+                : batteryRepository.aggregate(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        // Totals and names run concurrently on separate connections
+        Mono<List<String>> names = includeNames
+                ? batteryRepository.findNames(minPostcode, maxPostcode, minCapacity, maxCapacity).collectList()
+                : Mono.just(List.of());
+        return Mono.zip(stats, names)
+                .map(result -> {
+                    BatterySearchResponse response = new BatterySearchResponse();
+                    if (includeNames) {
+                        response.setBatteryNames(new ArrayList<>(result.getT2()));
+                    }
+                    response.setTotalCapacity(result.getT1().getTotalCapacity());
+                    response.setAverageCapacity(result.getT1().getAverageCapacity());
+                    batteryMetrics.recordSearch(sample, includeNames ? SearchType.NAMES : SearchType.AGGREGATES,
+                            result.getT2().size());
+                    return response;
+                })
+                .onErrorMap(DataAccessException.class, e -> {
+                    logger.error("Failed to search batteries: {}", e.getMessage(), e);
+                    return new DatabaseException("Failed to search batteries", e);
+                });
+    }
+
+    /**
+     * Emits matching names in name order, as fast as the client reads them, and hands the totals
+     * accumulated along the way to {@code totalsConsumer} once the last name has been emitted.
+     * Callers validate the parameters first, before any output is committed.
+     */
+    public Flux<String> streamBatteriesByPostcodeRange(String minPostcode, String maxPostcode,
+                                                       Integer minCapacity, Integer maxCapacity,
+                                                       Consumer<BatteryCapacityStats> totalsConsumer) {
+        Timer.Sample sample = batteryMetrics.start();
+        AtomicLong count = new AtomicLong();
+        AtomicLong totalCapacity = new AtomicLong();
+        AtomicLong capacityCount = new AtomicLong();
+        return batteryRepository.streamNameCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity)
+                .map((BatteryNameCapacity row) -> {
+                    count.incrementAndGet();
+                    if (row.getCapacity() != null) {
+                        totalCapacity.addAndGet(row.getCapacity());
+                        capacityCount.incrementAndGet();
+                    }
+                    return row.getName();
+                })
+                .doOnComplete(() -> {
+                    long batteries = count.get();
+                    long withCapacity = capacityCount.get();
+                    totalsConsumer.accept(new BatteryCapacityStats(batteries, totalCapacity.get(),
+                            withCapacity == 0 ? 0.0 : (double) totalCapacity.get() / withCapacity));
+                    batteryMetrics.recordSearch(sample, SearchType.STREAM, (int) Math.min(batteries, Integer.MAX_VALUE));
+                })
+                .onErrorMap(DataAccessException.class, e -> {
+                    logger.error("Failed to stream batteries: {}", e.getMessage(), e);
+                    return new DatabaseException("Failed to search batteries", e);
+                });
+    }
+
+    private Battery requireValid(Battery battery) {
+        Set<ConstraintViolation<Battery>> violations = validator.validate(battery);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(describe(violations));
+        }
+        // Ids are always assigned by the database
+        battery.setId(null);
+        return battery;
+    }
+
+    private Battery parse(String line, long lineNumber, BatteryIngestSummary summary) {
+        Battery battery;
+        try {
+            battery = batteryReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            reject(summary, lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+            return null;
+        }
+        Set<ConstraintViolation<Battery>> violations = validator.validate(battery);
+        if (!violations.isEmpty()) {
+            reject(summary, lineNumber, describe(violations));
+            return null;
+        }
+        battery.setId(null);
+        return battery;
+    }
+
+    private void reject(BatteryIngestSummary summary, long lineNumber, String reason) {
+        summary.setRejected(summary.getRejected() + 1);
+        if (summary.getRejections().size() < maxReportedRejections) {
+            summary.getRejections().add(new BatteryIngestSummary.Rejection(lineNumber, reason));
+        }
+    }
+
+    private static String describe(Set<ConstraintViolation<Battery>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
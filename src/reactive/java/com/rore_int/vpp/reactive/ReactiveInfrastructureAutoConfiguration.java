@@ -0,0 +1,70 @@
+package com.rore_int.vpp.reactive;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.autoconfigure.web.reactive.ReactiveWebServerFactoryAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.boot.web.reactive.server.ReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Infrastructure the reactive profile needs that Boot would not pick with both web stacks on the
+ * classpath. Registered as an auto-configuration so each bean yields to application-defined ones.
+ */
+@AutoConfiguration(before = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+        ReactiveWebServerFactoryAutoConfiguration.class})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveInfrastructureAutoConfiguration {
+
+    // Boot prefers Tomcat when both servers are present, but the point of this profile is Netty's event loop
+    @Bean
+    @ConditionalOnMissingBean(ReactiveWebServerFactory.class)
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(
+            ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        serverCustomizers.orderedStream().forEach(factory::addServerCustomizers);
+        return factory;
+    }
+
+    /**
+     * Boot backs off its DataSource auto-configuration once an R2DBC ConnectionFactory exists,
+     * but Flyway, JPA and the JDBC services the reactive controller reuses still need a pool.
+     * Yields to the routing DataSource of {@link com.rore_int.vpp.config.DataSourceRoutingConfig}.
+     */
+    @Bean
+    @ConditionalOnMissingBean(DataSource.class)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * R2DBC brings a second, reactive transaction manager, which makes the blocking services'
+     * {@code @Transactional} ambiguous. The JPA one is made primary; reactive code demarcates its
+     * transactions with the {@code TransactionalOperator} bound to the R2DBC manager instead.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnMissingBean(PlatformTransactionManager.class)
+    public JpaTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager();
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+        return transactionManager;
+    }
+}
@@ -0,0 +1,73 @@
+package com.rore_int.vpp.benchmark;
+
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryNameId;
+import com.rore_int.vpp.repository.BatteryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search queries against a real PostgreSQL database, by default the local one from
+ * application.properties. Override with -Dvpp.benchmark.datasource.url/username/password.
+ * Results depend on the data already in that database; the row count is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatteryRepositoryBenchmark {
+
+    // Narrow, typical and full postcode ranges
+    @Param({"6000-6000", "6000-6200", "0000-9999"})
+    private String range;
+
+    private ConfigurableApplicationContext context;
+    private BatteryRepository batteryRepository;
+    private String minPostcode;
+    private String maxPostcode;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        context = BenchmarkSupport.application(
+                "--spring.datasource.url=" + System.getProperty("vpp.benchmark.datasource.url",
+                        "jdbc:postgresql://localhost:5432/rore_db"),
+                "--spring.datasource.username=" + System.getProperty("vpp.benchmark.datasource.username",
+                        "rore_user"),
+                "--spring.datasource.password=" + System.getProperty("vpp.benchmark.datasource.password",
+                        "R0Re-1nT"),
+                "--spring.datasource.driver-class-name=org.postgresql.Driver");
+        batteryRepository = context.getBean(BatteryRepository.class);
+        String[] bounds = range.split("-");
+        minPostcode = bounds[0];
+        maxPostcode = bounds[1];
+        System.out.println("Benchmarking against " + batteryRepository.count() + " batteries");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BatteryCapacityStats aggregate() {
+        return batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, null);
+    }
+
+    @Benchmark
+    public BatteryCapacityStats aggregateWithCapacityFilter() {
+        return batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, 10000, 60000);
+    }
+
+    @Benchmark
+    public List<BatteryNameId> firstPage() {
+        return batteryRepository.findFirstPageByPostcodeRangeAndCapacity(
+                minPostcode, maxPostcode, null, null, Limit.of(100));
+    }
+}
@@ -0,0 +1,59 @@
+package com.rore_int.vpp.benchmark;
+
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.service.BatteryService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end search cost through the service, its queries and a Testcontainers PostgreSQL
+ * loaded with 1k to 1M batteries: the full-range search with names and the streamed
+ * aggregation. The search cache is disabled, otherwise every iteration after the first would
+ * be a cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatteryServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int batteries;
+
+    private ConfigurableApplicationContext context;
+    private BatteryService batteryService;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        context = BenchmarkSupport.application("--vpp.search.cache.enabled=false");
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO batteries (id, name, postcode, capacity) "
+                + "SELECT nextval('batteries_seq'), 'Battery-' || g, g % 10000, 10000 + g % 50000 "
+                + "FROM generate_series(1, ?) g", batteries);
+        jdbcTemplate.execute("ANALYZE batteries");
+        batteryService = context.getBean(BatteryService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BatterySearchResponse search() {
+        return batteryService.searchBatteriesByPostcodeRange("0000", "9999", null, null);
+    }
+
+    @Benchmark
+    public BatteryCapacityStats streamAggregate(Blackhole blackhole) {
+        return batteryService.streamBatteriesByPostcodeRange("0000", "9999", null, null, blackhole::consume);
+    }
+}
@@ -0,0 +1,91 @@
+package com.rore_int.vpp.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.rore_int.vpp.entity.Battery;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire format cost of the two large payloads, a search response with many names and a bulk
+ * create request, in JSON, CBOR and Smile. The mappers are built the way Spring MVC builds them,
+ * so defaults match production. Payload sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatteryWireFormatBenchmark {
+
+    @Param({"1000", "100000"})
+    private int batteries;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectWriter responseWriter;
+    private ObjectWriter batteryListWriter;
+    private ObjectReader batteryListReader;
+    private BatterySearchResponse response;
+    private List<Battery> fleet;
+    private byte[] createRequest;
+
+    @Setup
+    public void setUp() throws Exception {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        responseWriter = objectMapper.writerFor(BatterySearchResponse.class);
+        batteryListWriter = objectMapper.writerFor(new TypeReference<List<Battery>>() { });
+        batteryListReader = objectMapper.readerFor(new TypeReference<List<Battery>>() { });
+
+        List<String> names = new ArrayList<>(batteries);
+        fleet = new ArrayList<>(batteries);
+        for (int i = 0; i < batteries; i++) {
+            names.add("Battery-" + i);
+            Battery battery = new Battery();
+            battery.setName("Battery-" + i);
+            battery.setPostcode(String.format("%04d", i % 10000));
+            battery.setCapacity(10000 + i % 50000);
+            fleet.add(battery);
+        }
+        response = new BatterySearchResponse();
+        response.setBatteryNames(names);
+        response.setTotalCapacity(123456789L);
+        response.setAverageCapacity(12345.6);
+        createRequest = objectMapper.writeValueAsBytes(fleet);
+        System.out.printf("%n%s payloads for %d batteries: search response %d bytes, create request %d bytes%n",
+                format, batteries, responseWriter.writeValueAsBytes(response).length, createRequest.length);
+    }
+
+    @Benchmark
+    public byte[] serializeSearchResponse() throws Exception {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    // The create response echoes the saved batteries
+    @Benchmark
+    public byte[] serializeBatteries() throws Exception {
+        return batteryListWriter.writeValueAsBytes(fleet);
+    }
+
+    @Benchmark
+    public List<Battery> deserializeBatteries() throws Exception {
+        return batteryListReader.readValue(createRequest);
+    }
+}
@@ -0,0 +1,42 @@
+package com.rore_int.vpp.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.rore_int.vpp.VppApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.stream.Stream;
+
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    // Benchmarks run outside Spring, so logback-spring.xml is not applied; keep per-call INFO logs out of the numbers
+    static void quietLogging() {
+        Logger logger = LoggerFactory.getLogger("com.rore_int.vpp");
+        if (logger instanceof ch.qos.logback.classic.Logger logbackLogger) {
+            logbackLogger.setLevel(Level.WARN);
+        }
+        Logger root = LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        if (root instanceof ch.qos.logback.classic.Logger logbackRoot) {
+            logbackRoot.setLevel(Level.WARN);
+        }
+    }
+
+    /**
+     * Starts the application without a web server and returns its context, so benchmarks take
+     * their beans wired exactly as in production. The database is the Testcontainers PostgreSQL
+     * from the test application.properties unless {@code args} point the datasource elsewhere;
+     * command-line arguments take precedence over that file.
+     */
+    static ConfigurableApplicationContext application(String... args) {
+        String[] common = {"--spring.jpa.show-sql=false", "--logging.level.root=WARN"};
+        return new SpringApplicationBuilder(VppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(Stream.concat(Stream.of(common), Stream.of(args)).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,98 @@
+package com.rore_int.vpp.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.rore_int.vpp.logging.LogSampler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging cost a search request pays on its own thread: the controller's entry line and the
+ * service's completion line, written to a file through the appenders of logback-spring.xml.
+ * Compares a blocking file appender with the async wrapper, each with every request logged and
+ * with 1 in 100 sampled. Several threads log at once, as concurrent requests do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"sync", "async"})
+    private String appender;
+
+    @Param({"1", "100"})
+    private int sampleRate;
+
+    private LoggerContext context;
+    private Path logFile;
+    private Logger logger;
+    private LogSampler logSampler;
+
+    @Setup
+    public void setUp() throws IOException {
+        // A private context so the benchmark neither depends on nor disturbs the global configuration
+        context = new LoggerContext();
+        logFile = Files.createTempFile("vpp-logging-benchmark", ".log");
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} %-5level [%thread] %logger{36} - %msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logFile.toString());
+        file.setEncoder(encoder);
+        file.start();
+
+        Appender<ILoggingEvent> target = file;
+        if (appender.equals("async")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.addAppender(file);
+            async.start();
+            target = async;
+        }
+
+        logger = context.getLogger("com.rore_int.vpp.controller.BatteryController");
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(target);
+        logSampler = new LogSampler(sampleRate, Duration.ofSeconds(1));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public boolean searchRequest() {
+        boolean sampled = logSampler.sample("GET /api/batteries/search");
+        if (sampled) {
+            logger.info("Received request to search batteries in postcode range: {} to {}, minCapacity: {}, maxCapacity: {}, includeNames: {}",
+                    "6000", "6200", 10000, null, true);
+        }
+        if (logSampler.sample("Search")) {
+            logger.info("{} in postcode range: {} to {} returned {} batteries", "Search", "6000", "6200", 42);
+        }
+        return sampled;
+    }
+}
@@ -0,0 +1,52 @@
+package com.rore_int.vpp.benchmark;
+
+import com.rore_int.vpp.exception.ValidationException;
+import com.rore_int.vpp.service.BatteryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating search parameters on every request, for accepted input and for the
+ * rejected-input path, which pays for building an exception. Validation does not reach the
+ * database, so the batteries table stays empty.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchValidationBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private BatteryService batteryService;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.quietLogging();
+        context = BenchmarkSupport.application();
+        batteryService = context.getBean(BatteryService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void valid() {
+        batteryService.validateSearchParameters("6000", "6200", 10000, 60000);
+    }
+
+    @Benchmark
+    public ValidationException invalid() {
+        try {
+            batteryService.validateSearchParameters("6000", "620", 10000, 60000);
+            return null;
+        } catch (ValidationException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.rore_int.vpp.config;
+
+import com.rore_int.vpp.exception.OverloadedException;
+import com.rore_int.vpp.service.AdmissionLimiter;
+import com.rore_int.vpp.service.AdmissionLimiter.Priority;
+import com.rore_int.vpp.service.BatteryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "vpp.admission.large-body-size=1KB")
+@AutoConfigureMockMvc
+public class AdmissionWebConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AdmissionLimiter admissionLimiter;
+
+    @MockBean
+    private BatteryService batteryService;
+
+    @Test
+    void largeCreate_shouldBeShedBeforeItsBodyIsRead() throws Exception {
+        doThrow(new OverloadedException("Too many concurrent requests, retry later", 1))
+                .when(admissionLimiter).checkHeadroom(Priority.LARGE);
+        // Not JSON at all: reading it would fail, so a 429 means it was never parsed
+        byte[] body = new byte[2048];
+        Arrays.fill(body, (byte) 'x');
+
+        mockMvc.perform(post("/api/batteries")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.errorCode").value("TOO_MANY_REQUESTS"));
+
+        verify(batteryService, never()).createBatteries(any(), any());
+    }
+
+    @Test
+    void smallCreate_shouldOnlyBeCheckedAgainstTheSmallLimit() throws Exception {
+        doThrow(new OverloadedException("Too many concurrent requests, retry later", 1))
+                .when(admissionLimiter).checkHeadroom(Priority.LARGE);
+        when(batteryService.createBatteries(any(), any())).thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        mockMvc.perform(post("/api/batteries")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"Small\",\"postcode\":\"6000\",\"capacity\":100}]"))
+                .andExpect(request().asyncStarted());
+
+        verify(admissionLimiter).checkHeadroom(Priority.SMALL);
+        verify(batteryService).createBatteries(any(), any());
+    }
+}
@@ -0,0 +1,131 @@
+package com.rore_int.vpp.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncConfigTest {
+
+    private final AsyncConfig asyncConfig = new AsyncConfig();
+
+    @Test
+    void boundedBy_shouldLimitConcurrentTasksToPermits() throws Exception {
+        int permits = 2;
+        int tasks = 10;
+        Semaphore semaphore = new Semaphore(permits);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(tasks);
+        ExecutorService threads = Executors.newFixedThreadPool(tasks);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                threads.execute(AsyncConfig.boundedBy(semaphore).decorate(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }));
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            threads.shutdown();
+        }
+        assertTrue(threads.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(permits, maxRunning.get());
+        assertEquals(permits, semaphore.availablePermits());
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void virtualTaskExecutor_shouldFailFastBeforeJava21() {
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> asyncConfig.virtualTaskExecutor(10));
+        assertTrue(thrown.getMessage().startsWith("vpp.async.mode=virtual requires Java 21 or newer"));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualTaskExecutor_shouldRunTasks() throws Exception {
+        CompletableFuture<String> result = CompletableFuture.supplyAsync(
+                () -> Thread.currentThread().getName(), asyncConfig.virtualTaskExecutor(10));
+
+        assertTrue(result.get(10, TimeUnit.SECONDS).startsWith("BatteryVirtualThread-"));
+    }
+
+    @Test
+    void taskExecutor_shouldUseBoundedPlatformPool() throws Exception {
+        CompletableFuture<String> result = CompletableFuture.supplyAsync(
+                () -> Thread.currentThread().getName(), asyncConfig.taskExecutor(new SimpleMeterRegistry()));
+
+        assertTrue(result.get(10, TimeUnit.SECONDS).startsWith("BatteryAsyncThread-"));
+    }
+
+    @Test
+    void taskExecutor_shouldCountRejectedTasks() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Executor executor = asyncConfig.taskExecutor(registry);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocker = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try {
+            // 50 threads plus 100 queued tasks fill the executor
+            for (int i = 0; i < 150; i++) {
+                executor.execute(blocker);
+            }
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(blocker));
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(1.0, registry.get("vpp.executor.rejected").counter().count());
+    }
+
+    @Test
+    void searchExecutor_shouldCountRejectionsApartFromCreates() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        asyncConfig.taskExecutor(registry);
+        Executor executor = asyncConfig.searchExecutor(registry, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocker = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try {
+            // One thread plus one queued task fill the executor
+            executor.execute(blocker);
+            executor.execute(blocker);
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(blocker));
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(1.0, registry.get("vpp.executor.rejected").tag("name", "searchExecutor").counter().count());
+        assertEquals(0.0, registry.get("vpp.executor.rejected").tag("name", "taskExecutor").counter().count());
+    }
+}
@@ -0,0 +1,97 @@
+package com.rore_int.vpp.config;
+
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.service.BatteryService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the application against two independent PostgreSQL instances, so a read answered from the
+ * "replica" is told apart from one answered by the primary by the rows each instance holds.
+ */
+@Testcontainers
+@SpringBootTest(properties = "vpp.search.cache.enabled=false")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ReadReplicaRoutingTest {
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("vpp.datasource.replica.url", replica::getJdbcUrl);
+        registry.add("vpp.datasource.replica.username", replica::getUsername);
+        registry.add("vpp.datasource.replica.password", replica::getPassword);
+        // Application Flyway only migrates the primary; a real replica would get the schema by replication
+        Flyway.configure()
+                .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+    }
+
+    @Autowired
+    private BatteryService batteryService;
+
+    @Test
+    @Order(1)
+    void searches_shouldReadFromReplicaWhileCreatesWriteToPrimary() throws Exception {
+        List<Battery> saved = batteryService.createBatteries(List.of(battery("PrimaryBattery", "6000"))).get();
+        assertEquals(1, saved.size());
+        replicaJdbc().update("INSERT INTO batteries (id, name, postcode, capacity) VALUES (nextval('batteries_seq'), ?, ?, ?)",
+                "ReplicaBattery", 6000, 5000);
+
+        BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange("6000", "6000", null, null);
+
+        assertEquals(List.of("ReplicaBattery"), response.getBatteryNames());
+        assertEquals(5000L, response.getTotalCapacity());
+    }
+
+    @Test
+    @Order(2)
+    void searches_shouldFallBackToPrimaryWhenReplicaIsDown() {
+        replica.stop();
+
+        BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange("6000", "6000", null, null);
+
+        assertEquals(List.of("PrimaryBattery"), response.getBatteryNames());
+    }
+
+    private static JdbcTemplate replicaJdbc() {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+    }
+
+    private static Battery battery(String name, String postcode) {
+        Battery battery = new Battery();
+        battery.setName(name);
+        battery.setPostcode(postcode);
+        battery.setCapacity(10000);
+        return battery;
+    }
+}
@@ -0,0 +1,76 @@
+package com.rore_int.vpp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReplicaFallbackDataSourceTest {
+
+    private DataSource replica;
+    private DataSource primary;
+    private Connection replicaConnection;
+    private Connection primaryConnection;
+    private Counter fallbacks;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        replica = mock(DataSource.class);
+        primary = mock(DataSource.class);
+        replicaConnection = mock(Connection.class);
+        primaryConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        fallbacks = new SimpleMeterRegistry().counter("fallbacks");
+    }
+
+    @Test
+    void getConnection_shouldUseReplicaWhenAvailable() throws Exception {
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        ReplicaFallbackDataSource dataSource = new ReplicaFallbackDataSource(replica, primary, Duration.ofSeconds(30), fallbacks);
+
+        assertSame(replicaConnection, dataSource.getConnection());
+        verifyNoInteractions(primary);
+        assertEquals(0, fallbacks.count());
+    }
+
+    @Test
+    void getConnection_shouldFallBackToPrimaryAndSkipReplicaAfterFailure() throws Exception {
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("replica - Connection is not available"));
+        ReplicaFallbackDataSource dataSource = new ReplicaFallbackDataSource(replica, primary, Duration.ofSeconds(30), fallbacks);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertSame(primaryConnection, dataSource.getConnection());
+        // The second checkout does not wait on the replica again
+        verify(replica, times(1)).getConnection();
+        assertTrue(dataSource.isReplicaSkipped());
+        assertEquals(2, fallbacks.count());
+    }
+
+    @Test
+    void getConnection_shouldFallBackWhenReplicaPoolCannotStart() throws Exception {
+        when(replica.getConnection()).thenThrow(new IllegalStateException("Failed to initialize pool"));
+        ReplicaFallbackDataSource dataSource = new ReplicaFallbackDataSource(replica, primary, Duration.ofSeconds(30), fallbacks);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+    }
+
+    @Test
+    void getConnection_shouldRetryReplicaOnceRetryPeriodHasPassed() throws Exception {
+        when(replica.getConnection())
+                .thenThrow(new SQLTransientConnectionException("replica - Connection is not available"))
+                .thenReturn(replicaConnection);
+        ReplicaFallbackDataSource dataSource = new ReplicaFallbackDataSource(replica, primary, Duration.ZERO, fallbacks);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertSame(replicaConnection, dataSource.getConnection());
+        assertEquals(1, fallbacks.count());
+    }
+}
@@ -1,13 +1,19 @@
 package com.rore_int.vpp.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.rore_int.vpp.entity.Battery;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -16,11 +22,15 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -115,6 +125,124 @@ public class BatteryControllerTest {
                 .andExpect(jsonPath("$.message").value(containsString("capacity: Capacity must be positive")));
     }
 
+    @Test
+    void testStreamingBatteryRegistration() throws Exception {
+        String requestBody = String.join("\n",
+                "{\"name\":\"Stream-1\",\"postcode\":\"6000\",\"capacity\":10000}",
+                "{\"name\":\"\",\"postcode\":\"6000\",\"capacity\":10000}",
+                "{\"name\":\"Stream-3\",\"postcode\":\"6001\",\"capacity\":20000}");
+
+        mockMvc.perform(post("/api/batteries/stream")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rejections[0].line").value(2))
+                .andExpect(jsonPath("$.rejections[0].reason").value("name: Name is mandatory"));
+    }
+
+    @Test
+    void testStreamingBatterySearch() throws Exception {
+        Battery battery = new Battery();
+        battery.setName("Streamed-Search");
+        battery.setPostcode("0001");
+        battery.setCapacity(12345);
+        mockMvc.perform(post("/api/batteries")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(battery))))
+                .andExpect(request().asyncStarted())
+                .andDo(result -> mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()));
+
+        MvcResult result = mockMvc.perform(get("/api/batteries/search/stream")
+                        .param("minPostcode", "0001")
+                        .param("maxPostcode", "0001"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batteryNames[0]").value("Streamed-Search"))
+                .andExpect(jsonPath("$.totalCapacity").value(12345))
+                .andExpect(jsonPath("$.averageCapacity").value(12345.0));
+    }
+
+    @Test
+    void testPaginatedBatterySearch() throws Exception {
+        List<Battery> batteries = new ArrayList<>();
+        for (String name : List.of("Page-A", "Page-B", "Page-C")) {
+            Battery battery = new Battery();
+            battery.setName(name);
+            battery.setPostcode("0002");
+            battery.setCapacity(10000);
+            batteries.add(battery);
+        }
+        mockMvc.perform(post("/api/batteries")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batteries)))
+                .andExpect(request().asyncStarted())
+                .andDo(result -> mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()));
+
+        MvcResult firstPage = mockMvc.perform(get("/api/batteries/search")
+                        .param("minPostcode", "0002")
+                        .param("maxPostcode", "0002")
+                        .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batteryNames.length()").value(2))
+                .andExpect(jsonPath("$.batteryNames[0]").value("Page-A"))
+                .andExpect(jsonPath("$.batteryNames[1]").value("Page-B"))
+                .andReturn();
+        String cursor = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/batteries/search")
+                        .param("minPostcode", "0002")
+                        .param("maxPostcode", "0002")
+                        .param("pageSize", "2")
+                        .param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batteryNames.length()").value(1))
+                .andExpect(jsonPath("$.batteryNames[0]").value("Page-C"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void testBatchBatterySearch() throws Exception {
+        Battery battery = new Battery();
+        battery.setName("Batch-Search");
+        battery.setPostcode("0003");
+        battery.setCapacity(20000);
+        mockMvc.perform(post("/api/batteries")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(battery))))
+                .andExpect(request().asyncStarted())
+                .andDo(result -> mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()));
+
+        mockMvc.perform(post("/api/batteries/search/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"minPostcode\":\"0003\",\"maxPostcode\":\"0003\"},"
+                                + "{\"minPostcode\":\"0003\",\"maxPostcode\":\"0003\",\"minCapacity\":30000}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].batteryNames[0]").value("Batch-Search"))
+                .andExpect(jsonPath("$[0].totalCapacity").value(20000))
+                .andExpect(jsonPath("$[1].batteryNames.length()").value(0));
+
+        mockMvc.perform(post("/api/batteries/search/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"minPostcode\":\"0003\",\"maxPostcode\":\"0003\"},{\"minPostcode\":\"3\",\"maxPostcode\":\"0003\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("queries[1]: minPostcode must be a 4-digit number"));
+    }
+
+    @Test
+    void testInvalidStreamingSearchParameters() throws Exception {
+        mockMvc.perform(get("/api/batteries/search/stream")
+                        .param("minPostcode", "123")
+                        .param("maxPostcode", "6200"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("minPostcode must be a 4-digit number"));
+    }
+
     @Test
     void testInvalidSearchParameters() throws Exception {
         mockMvc.perform(get("/api/batteries/search")
@@ -124,4 +252,98 @@ public class BatteryControllerTest {
                 .andExpect(jsonPath("$.errorCode").value("VALIDATION_ERROR"))
                 .andExpect(jsonPath("$.message").value("minPostcode must be a 4-digit number"));
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @ValueSource(strings = {"application/cbor", "application/x-jackson-smile"})
+    void testBinaryBatteryRegistrationAndSearch(String mediaType) throws Exception {
+        ObjectMapper binaryMapper = binaryMapper(mediaType);
+        String postcode = mediaType.contains("cbor") ? "0004" : "0005";
+        Battery battery = new Battery();
+        battery.setName("Binary-" + postcode);
+        battery.setPostcode(postcode);
+        battery.setCapacity(15000);
+
+        MvcResult created = mockMvc.perform(post("/api/batteries")
+                        .contentType(mediaType)
+                        .accept(mediaType)
+                        .content(binaryMapper.writeValueAsBytes(List.of(battery))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] createdBody = mockMvc.perform(asyncDispatch(created))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode saved = binaryMapper.readTree(createdBody);
+        assertEquals("Binary-" + postcode, saved.get(0).get("name").asText());
+        assertEquals(postcode, saved.get(0).get("postcode").asText());
+
+        byte[] searchBody = mockMvc.perform(get("/api/batteries/search")
+                        .param("minPostcode", postcode)
+                        .param("maxPostcode", postcode)
+                        .accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode search = binaryMapper.readTree(searchBody);
+        assertEquals("Binary-" + postcode, search.get("batteryNames").get(0).asText());
+        assertEquals(15000, search.get("totalCapacity").asLong());
+        assertEquals(15000.0, search.get("averageCapacity").asDouble());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"application/cbor", "application/x-jackson-smile"})
+    void testInvalidBinaryBatteryRegistrationMatchesJson(String mediaType) throws Exception {
+        Battery invalidBattery = new Battery();
+        invalidBattery.setName(""); // Invalid: blank name
+        invalidBattery.setPostcode("6000");
+        invalidBattery.setCapacity(10000);
+
+        byte[] jsonBody = mockMvc.perform(post("/api/batteries")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(invalidBattery))))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] binaryBody = mockMvc.perform(post("/api/batteries")
+                        .contentType(mediaType)
+                        .accept(mediaType)
+                        .content(binaryMapper(mediaType).writeValueAsBytes(List.of(invalidBattery))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode json = objectMapper.readTree(jsonBody);
+        JsonNode binary = binaryMapper(mediaType).readTree(binaryBody);
+        assertEquals("VALIDATION_ERROR", binary.get("errorCode").asText());
+        assertEquals("name: Name is mandatory", binary.get("message").asText());
+        assertEquals(json.get("errorCode"), binary.get("errorCode"));
+        assertEquals(json.get("message"), binary.get("message"));
+    }
+
+    @Test
+    void testSearchContentNegotiation() throws Exception {
+        for (String mediaType : List.of("application/cbor", "application/x-jackson-smile")) {
+            mockMvc.perform(get("/api/batteries/search")
+                            .param("minPostcode", "6000")
+                            .param("maxPostcode", "6200")
+                            .accept(mediaType))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(mediaType));
+        }
+        // JSON stays the default without an Accept header and wins when listed first
+        mockMvc.perform(get("/api/batteries/search")
+                        .param("minPostcode", "6000")
+                        .param("maxPostcode", "6200"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/api/batteries/search")
+                        .param("minPostcode", "6000")
+                        .param("maxPostcode", "6200")
+                        .header("Accept", "application/json, application/cbor;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    private static ObjectMapper binaryMapper(String mediaType) {
+        return new ObjectMapper(mediaType.contains("cbor") ? new CBORFactory() : new SmileFactory());
+    }
+}
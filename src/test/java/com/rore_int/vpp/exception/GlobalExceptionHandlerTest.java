@@ -20,6 +20,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -57,7 +58,7 @@ public class GlobalExceptionHandlerTest {
     @Test
     void shouldHandleValidationException() throws Exception {
         // Mock BatteryService to throw ValidationException
-        when(batteryService.createBatteries(any())).thenThrow(new ValidationException("minPostcode is mandatory"));
+        when(batteryService.createBatteries(any(), any())).thenThrow(new ValidationException("minPostcode is mandatory"));
         Battery battery = new Battery();
         battery.setName("TestBattery");
         battery.setPostcode("6000");
@@ -74,7 +75,7 @@ public class GlobalExceptionHandlerTest {
     @Test
     void shouldHandleDatabaseException() throws Exception {
         // Mock BatteryService to throw DatabaseException
-        when(batteryService.createBatteries(any())).thenThrow(new DatabaseException("Failed to save batteries", new RuntimeException()));
+        when(batteryService.createBatteries(any(), any())).thenThrow(new DatabaseException("Failed to save batteries", new RuntimeException()));
         Battery battery = new Battery();
         battery.setName("TestBattery");
         battery.setPostcode("6000");
@@ -88,6 +89,45 @@ public class GlobalExceptionHandlerTest {
                 .andExpect(jsonPath("$.message").value("An error occurred while accessing the database"));
     }
 
+    @Test
+    void shouldHandleIdempotencyKeyMismatchException() throws Exception {
+        // Mock BatteryService to reject a key reused for a different request
+        when(batteryService.createBatteries(any(), any())).thenThrow(new IdempotencyKeyMismatchException(
+                "Idempotency-Key was already used for a different list of batteries"));
+        Battery battery = new Battery();
+        battery.setName("TestBattery");
+        battery.setPostcode("6000");
+        battery.setCapacity(10000);
+        List<Battery> batteries = List.of(battery);
+        mockMvc.perform(post("/api/batteries")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batteries)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.errorCode").value("IDEMPOTENCY_KEY_MISMATCH"))
+                .andExpect(jsonPath("$.message").value(
+                        "Idempotency-Key was already used for a different list of batteries"));
+    }
+
+    @Test
+    void shouldHandleOverloadedExceptionWithRetryAfter() throws Exception {
+        // Mock BatteryService to shed the request
+        when(batteryService.createBatteries(any(), any()))
+                .thenThrow(new OverloadedException("Battery writes are saturated, retry later", 2));
+        Battery battery = new Battery();
+        battery.setName("TestBattery");
+        battery.setPostcode("6000");
+        battery.setCapacity(10000);
+        List<Battery> batteries = List.of(battery);
+        mockMvc.perform(post("/api/batteries")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batteries)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.errorCode").value("TOO_MANY_REQUESTS"))
+                .andExpect(jsonPath("$.message").value("Battery writes are saturated, retry later"));
+    }
+
     @Test
     void shouldHandleMissingServletRequestParameterException() throws Exception {
         // Trigger MissingServletRequestParameterException by omitting minPostcode
@@ -101,7 +141,7 @@ public class GlobalExceptionHandlerTest {
     @Test
     void shouldHandleGenericException() throws Exception {
         // Mock BatteryService to throw a generic Exception
-        when(batteryService.createBatteries(any())).thenThrow(new RuntimeException("Unexpected error"));
+        when(batteryService.createBatteries(any(), any())).thenThrow(new RuntimeException("Unexpected error"));
         Battery battery = new Battery();
         battery.setName("TestBattery");
         battery.setPostcode("6000");
@@ -0,0 +1,78 @@
+package com.rore_int.vpp.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcomes of one operation during the measured phase. Latencies are kept in full, which is a
+ * few hundred KB for a typical run, so percentiles are exact rather than bucketed.
+ */
+class LatencyRecorder {
+    private long[] latencies = new long[1024];
+    private int count;
+    private final Map<String, Long> statuses = new TreeMap<>();
+    private long batteries;
+
+    synchronized void record(long latencyNanos, int status, int batteryCount) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        statuses.merge(String.valueOf(status), 1L, Long::sum);
+        if (status / 100 == 2) {
+            batteries += batteryCount;
+        }
+    }
+
+    synchronized void recordError(long latencyNanos, Throwable error) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        statuses.merge(error.getClass().getSimpleName(), 1L, Long::sum);
+    }
+
+    synchronized LoadTestReport.Operation summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        LoadTestReport.Operation operation = new LoadTestReport.Operation();
+        operation.setRequests(count);
+        operation.setThroughput(count / seconds);
+        operation.setStatuses(new TreeMap<>(statuses));
+        operation.setBatteries(batteries);
+        long ok = 0;
+        long rejected = 0;
+        for (Map.Entry<String, Long> entry : statuses.entrySet()) {
+            String status = entry.getKey();
+            if (status.startsWith("2")) {
+                ok += entry.getValue();
+            } else if (status.equals("429") || status.equals("503")) {
+                rejected += entry.getValue();
+            }
+        }
+        operation.setRejected(rejected);
+        operation.setErrors(count - ok - rejected);
+        LoadTestReport.Latency latency = new LoadTestReport.Latency();
+        if (count > 0) {
+            latency.setMean(millis(Arrays.stream(sorted).sum() / count));
+            latency.setP50(millis(percentile(sorted, 0.50)));
+            latency.setP90(millis(percentile(sorted, 0.90)));
+            latency.setP99(millis(percentile(sorted, 0.99)));
+            latency.setP999(millis(percentile(sorted, 0.999)));
+            latency.setMax(millis(sorted[count - 1]));
+        }
+        operation.setLatencyMillis(latency);
+        return operation;
+    }
+
+    // Nearest-rank percentile
+    private static long percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
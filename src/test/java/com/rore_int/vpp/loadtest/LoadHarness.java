@@ -0,0 +1,348 @@
+package com.rore_int.vpp.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for a running application and its database. Requests are started at
+ * a fixed rate whatever the response times, and each latency is measured from the request's
+ * scheduled start, so a stalled server shows up as latency instead of a lower request rate.
+ * Writes a JSON report (throughput, latency percentiles, status counts, row counts) to
+ * {@code target/loadtest/<runId>.json}.
+ *
+ * <pre>
+ * mvn -P loadtest verify -Dloadtest.args="--rate=200 --duration=60s --mix=create:20,search:80"
+ * </pre>
+ */
+public class LoadHarness {
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(90);
+
+    private final LoadTestConfig config;
+    private final String runId;
+    private final String namePrefix;
+    private final HttpClient httpClient;
+    private final Random random;
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final AtomicLong batteriesAcknowledged = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private long nameSequence;
+
+    LoadHarness(LoadTestConfig config) {
+        this.config = config;
+        this.runId = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault()).format(Instant.now());
+        this.namePrefix = "LoadTest-" + runId + "-";
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.random = new Random(config.getSeed());
+        for (String operation : config.getMix().keySet()) {
+            if (operation.equals("create")) {
+                config.getBatchSizes().forEach(size -> recorders.put("create-" + size, new LatencyRecorder()));
+            } else {
+                recorders.put(operation, new LatencyRecorder());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        LoadTestReport report = new LoadHarness(config).run();
+        ObjectMapper mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .build();
+        Path path = Path.of(config.getReport() != null ? config.getReport() : "target/loadtest/" + report.getRunId() + ".json");
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        mapper.writeValue(path.toFile(), report);
+        printSummary(report);
+        System.out.println("Report written to " + path.toAbsolutePath());
+    }
+
+    LoadTestReport run() throws Exception {
+        LoadTestReport report = new LoadTestReport();
+        report.setRunId(runId);
+        report.setConfig(config);
+        Process app = config.getLaunch() != null ? launch() : null;
+        try {
+            awaitReady(app);
+            LoadTestReport.Database database = report.getDatabase();
+            database.setRowsBefore(countRows("SELECT COUNT(*) FROM batteries", null));
+            Double rejectedBefore = executorRejected();
+
+            report.setStartedAt(Instant.now());
+            generateLoad();
+
+            Double rejectedAfter = executorRejected();
+            if (rejectedBefore != null && rejectedAfter != null) {
+                report.getServer().setExecutorRejected(rejectedAfter - rejectedBefore);
+            }
+            database.setRowsAfter(countRows("SELECT COUNT(*) FROM batteries", null));
+            database.setRowsWritten(countRows("SELECT COUNT(*) FROM batteries WHERE name LIKE ?", namePrefix + "%"));
+            database.setBatteriesAcknowledged(batteriesAcknowledged.get());
+            database.setConsistent(database.getRowsWritten() == database.getBatteriesAcknowledged());
+            if (config.isCleanup()) {
+                deleteRunRows();
+                database.setCleanedUp(true);
+            }
+        } finally {
+            if (app != null) {
+                app.destroy();
+                if (!app.waitFor(30, TimeUnit.SECONDS)) {
+                    app.destroyForcibly();
+                }
+            }
+        }
+        summarize(report);
+        return report;
+    }
+
+    private void generateLoad() throws InterruptedException {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / config.getRate();
+        long start = System.nanoTime();
+        long measureFrom = start + config.getWarmup().toNanos();
+        long end = measureFrom + config.getDuration().toNanos();
+        Semaphore inFlight = new Semaphore(config.getMaxInFlight());
+        System.out.printf("Run %s: %d req/s for %ss after %ss warmup against %s%n", runId, config.getRate(),
+                config.getDuration().toSeconds(), config.getWarmup().toSeconds(), config.getUrl());
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * periodNanos;
+            if (scheduled >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            // Draw the request before checking capacity so the sequence does not depend on timing
+            Request request = nextRequest();
+            boolean measured = scheduled >= measureFrom;
+            if (!inFlight.tryAcquire()) {
+                if (measured) {
+                    skipped.incrementAndGet();
+                }
+                continue;
+            }
+            LatencyRecorder recorder = measured ? recorders.get(request.operation()) : null;
+            httpClient.sendAsync(request.httpRequest(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - scheduled;
+                        if (error == null && response.statusCode() / 100 == 2) {
+                            batteriesAcknowledged.addAndGet(request.batteries());
+                        }
+                        if (recorder != null) {
+                            if (error != null) {
+                                recorder.recordError(latency, error.getCause() != null ? error.getCause() : error);
+                            } else {
+                                recorder.record(latency, response.statusCode(), request.batteries());
+                            }
+                        }
+                        inFlight.release();
+                    });
+        }
+        if (!inFlight.tryAcquire(config.getMaxInFlight(), DRAIN_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            System.out.println("Warning: requests still outstanding after " + DRAIN_TIMEOUT.toSeconds() + "s");
+        }
+    }
+
+    private Request nextRequest() {
+        String operation = pickOperation();
+        if (operation.equals("create")) {
+            int size = config.getBatchSizes().get(random.nextInt(config.getBatchSizes().size()));
+            StringBuilder body = new StringBuilder(size * 64).append('[');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append("{\"name\":\"").append(namePrefix).append(nameSequence++)
+                        .append("\",\"postcode\":\"").append(postcode(randomPostcode()))
+                        .append("\",\"capacity\":").append(100 + random.nextInt(49_900)).append('}');
+            }
+            HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(config.getUrl() + "/api/batteries"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                    .build();
+            return new Request("create-" + size, httpRequest, size);
+        }
+        int minPostcode = randomPostcode();
+        int maxPostcode = Math.min(minPostcode + config.getSearchWidth() - 1, config.getMaxPostcode());
+        StringBuilder query = new StringBuilder("/api/batteries/search?minPostcode=").append(postcode(minPostcode))
+                .append("&maxPostcode=").append(postcode(maxPostcode))
+                .append("&includeNames=").append(config.isIncludeNames());
+        if (random.nextDouble() < config.getSearchFilterRatio()) {
+            int minCapacity = 100 + random.nextInt(40_000);
+            query.append("&minCapacity=").append(minCapacity)
+                    .append("&maxCapacity=").append(minCapacity + 10_000);
+        }
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(config.getUrl() + query))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        return new Request("search", httpRequest, 0);
+    }
+
+    private String pickOperation() {
+        int total = config.getMix().values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(total);
+        for (Map.Entry<String, Integer> entry : config.getMix().entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty mix");
+    }
+
+    private int randomPostcode() {
+        return config.getMinPostcode() + random.nextInt(config.getMaxPostcode() - config.getMinPostcode() + 1);
+    }
+
+    private void summarize(LoadTestReport report) {
+        double seconds = config.getDuration().toMillis() / 1000.0;
+        report.setMeasuredSeconds(seconds);
+        LoadTestReport.Totals totals = report.getTotals();
+        recorders.forEach((name, recorder) -> {
+            LoadTestReport.Operation operation = recorder.summarize(seconds);
+            report.getOperations().put(name, operation);
+            totals.setRequests(totals.getRequests() + operation.getRequests());
+            totals.setErrors(totals.getErrors() + operation.getErrors());
+            totals.setRejected(totals.getRejected() + operation.getRejected());
+        });
+        totals.setThroughput(totals.getRequests() / seconds);
+        totals.setSkipped(skipped.get());
+    }
+
+    private Process launch() throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-jar", config.getLaunch()));
+        command.addAll(config.getAppArgs());
+        Path log = Path.of("target/loadtest/" + runId + "-app.log");
+        Files.createDirectories(log.toAbsolutePath().getParent());
+        System.out.println("Starting " + String.join(" ", command) + " (output in " + log + ")");
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+    }
+
+    private void awaitReady(Process app) throws InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(URI.create(config.getUrl() + "/actuator/health"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (httpClient.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            if (app == null) {
+                throw new IllegalStateException("No healthy application at " + config.getUrl()
+                        + "; start it first or pass --launch=<jar>");
+            }
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + app.exitValue());
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Application not healthy after " + STARTUP_TIMEOUT.toSeconds() + "s");
+    }
+
+    // Null when the prometheus endpoint is unavailable or the counter has not been registered
+    private Double executorRejected() {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.getUrl() + "/actuator/prometheus"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            return response.body().lines()
+                    .filter(line -> line.startsWith("vpp_executor_rejected_total")
+                            && line.contains("name=\"taskExecutor\""))
+                    .map(line -> Double.valueOf(line.substring(line.lastIndexOf(' ') + 1)))
+                    .reduce(Double::sum)
+                    .orElse(null);
+        } catch (IOException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    private long countRows(String sql, String parameter) throws SQLException {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (parameter != null) {
+                statement.setString(1, parameter);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private void deleteRunRows() throws SQLException {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement("DELETE FROM batteries WHERE name LIKE ?")) {
+            statement.setString(1, namePrefix + "%");
+            statement.executeUpdate();
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(config.getDbUrl(), config.getDbUsername(), config.getDbPassword());
+    }
+
+    private static void printSummary(LoadTestReport report) {
+        System.out.printf("%-12s %9s %9s %9s %9s %9s %9s %7s %8s%n",
+                "operation", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors", "rejected");
+        report.getOperations().forEach((name, operation) -> System.out.printf(
+                "%-12s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %7d %8d%n", name, operation.getRequests(),
+                operation.getThroughput(), operation.getLatencyMillis().getP50(), operation.getLatencyMillis().getP90(),
+                operation.getLatencyMillis().getP99(), operation.getLatencyMillis().getMax(),
+                operation.getErrors(), operation.getRejected()));
+        LoadTestReport.Database database = report.getDatabase();
+        System.out.printf("skipped %d; rows written %d, acknowledged %d (%s); executor rejections %s%n",
+                report.getTotals().getSkipped(), database.getRowsWritten(), database.getBatteriesAcknowledged(),
+                database.isConsistent() ? "consistent" : "MISMATCH", report.getServer().getExecutorRejected());
+    }
+
+    private record Request(String operation, HttpRequest httpRequest, int batteries) {
+    }
+
+    private static String postcode(int postcode) {
+        return String.format("%04d", postcode);
+    }
+}
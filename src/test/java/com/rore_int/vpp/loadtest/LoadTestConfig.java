@@ -0,0 +1,122 @@
+package com.rore_int.vpp.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test settings, parsed from {@code --name=value} arguments. Every setting has a default, so
+ * two runs with the same arguments and seed send the same sequence of requests.
+ */
+@Data
+public class LoadTestConfig {
+    private String url = "http://localhost:8080";
+    // Requests started per second across all operations; latency is measured from each request's scheduled start
+    private int rate = 100;
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration warmup = Duration.ofSeconds(5);
+    // Requests beyond this many in flight are skipped and counted rather than queued in the client
+    private int maxInFlight = 256;
+    private long seed = 42;
+    // Relative weights of the operations, e.g. create:20,search:80
+    private Map<String, Integer> mix = mix("create:20,search:80");
+    // Each create sends one of these batch sizes, picked uniformly
+    private List<Integer> batchSizes = List.of(1, 10, 100);
+    private int minPostcode = 6000;
+    private int maxPostcode = 6999;
+    // Postcodes per search window
+    private int searchWidth = 100;
+    // Share of searches that also filter on capacity, which bypasses the summary table
+    private double searchFilterRatio = 0.5;
+    private boolean includeNames = true;
+    private String dbUrl = "jdbc:postgresql://localhost:5432/rore_db";
+    private String dbUsername = "rore_user";
+    @JsonIgnore
+    private String dbPassword = "R0Re-1nT";
+    // Delete the batteries this run created once they are counted, so repeated runs see the same table
+    private boolean cleanup = true;
+    // Optional application jar to start (and stop) around the run, with its arguments
+    private String launch;
+    private List<String> appArgs = List.of();
+    private String report;
+
+    public static LoadTestConfig parse(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "url" -> config.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "rate" -> config.rate = Integer.parseInt(value);
+                case "duration" -> config.duration = duration(value);
+                case "warmup" -> config.warmup = duration(value);
+                case "max-in-flight" -> config.maxInFlight = Integer.parseInt(value);
+                case "seed" -> config.seed = Long.parseLong(value);
+                case "mix" -> config.mix = mix(value);
+                case "batch-sizes" -> config.batchSizes = Arrays.stream(value.split(","))
+                        .map(String::trim).map(Integer::valueOf).toList();
+                case "postcodes" -> {
+                    String[] bounds = value.split("-");
+                    config.minPostcode = Integer.parseInt(bounds[0]);
+                    config.maxPostcode = Integer.parseInt(bounds[1]);
+                }
+                case "search-width" -> config.searchWidth = Integer.parseInt(value);
+                case "search-filter-ratio" -> config.searchFilterRatio = Double.parseDouble(value);
+                case "include-names" -> config.includeNames = Boolean.parseBoolean(value);
+                case "db-url" -> config.dbUrl = value;
+                case "db-username" -> config.dbUsername = value;
+                case "db-password" -> config.dbPassword = value;
+                case "cleanup" -> config.cleanup = Boolean.parseBoolean(value);
+                case "launch" -> config.launch = value;
+                case "app-args" -> config.appArgs = value.isBlank() ? List.of() : List.of(value.trim().split("\\s+"));
+                case "report" -> config.report = value;
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        config.validate();
+        return config;
+    }
+
+    private void validate() {
+        if (rate < 1 || maxInFlight < 1 || searchWidth < 1) {
+            throw new IllegalArgumentException("rate, max-in-flight and search-width must be positive");
+        }
+        if (minPostcode < 0 || maxPostcode > 9999 || minPostcode > maxPostcode) {
+            throw new IllegalArgumentException("postcodes must be a range within 0000-9999");
+        }
+        if (mix.isEmpty() || !List.of("create", "search").containsAll(mix.keySet())) {
+            throw new IllegalArgumentException("mix may only contain create and search");
+        }
+        if (mix.containsKey("create") && batchSizes.stream().anyMatch(size -> size < 1)) {
+            throw new IllegalArgumentException("batch-sizes must be positive");
+        }
+    }
+
+    // Accepts 90s, 5m or plain seconds
+    private static Duration duration(String value) {
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+    }
+
+    private static Map<String, Integer> mix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.put(parts[0].trim(), weight);
+            }
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,74 @@
+package com.rore_int.vpp.loadtest;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The JSON report of one run. Operations are keyed by name, with creates split by batch size
+ * ({@code create-100}), so reports from different builds or settings can be diffed field by field.
+ */
+@Data
+public class LoadTestReport {
+    private String runId;
+    private Instant startedAt;
+    private LoadTestConfig config;
+    private double measuredSeconds;
+    private Map<String, Operation> operations = new TreeMap<>();
+    private Totals totals = new Totals();
+    private Server server = new Server();
+    private Database database = new Database();
+
+    @Data
+    public static class Operation {
+        private long requests;
+        private double throughput;
+        private long errors;
+        // 429 and 503 responses, i.e. the server shedding load
+        private long rejected;
+        // Batteries acknowledged by successful creates
+        private long batteries;
+        private Map<String, Long> statuses;
+        private Latency latencyMillis;
+    }
+
+    @Data
+    public static class Latency {
+        private double mean;
+        private double p50;
+        private double p90;
+        private double p99;
+        private double p999;
+        private double max;
+    }
+
+    @Data
+    public static class Totals {
+        private long requests;
+        private double throughput;
+        private long errors;
+        private long rejected;
+        // Scheduled requests not sent because max-in-flight requests were outstanding
+        private long skipped;
+    }
+
+    @Data
+    public static class Server {
+        // Increase of vpp.executor.rejected over the run, when the prometheus endpoint is reachable
+        private Double executorRejected;
+    }
+
+    @Data
+    public static class Database {
+        private long rowsBefore;
+        private long rowsAfter;
+        // Rows carrying this run's name prefix, counted after the last response
+        private long rowsWritten;
+        // Batteries the application acknowledged with a 2xx, warmup included
+        private long batteriesAcknowledged;
+        private boolean consistent;
+        private boolean cleanedUp;
+    }
+}
@@ -0,0 +1,246 @@
+package com.rore_int.vpp.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.Data;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures cold start as the time from launching the JVM to the first successful
+ * {@code /api/batteries/search}, which includes context refresh, Flyway and Hibernate validation,
+ * connection pool warm-up and the first query. Each run starts a fresh process; variants are
+ * interleaved so drift in the database or the machine affects them equally. Variants:
+ * <ul>
+ *     <li>{@code jar}: {@code java -jar} on the packaged jar.</li>
+ *     <li>{@code faststart}: the extracted jar from {@code mvn -P faststart package}, with
+ *     {@code -Dspring.aot.enabled=true} and its CDS archive.</li>
+ * </ul>
+ * Writes a JSON report to {@code target/startup/<runId>.json}. Stop any instance on the port first.
+ *
+ * <pre>
+ * mvn -P startup verify -Dstartup.args="--runs=5 --variants=jar,faststart"
+ * </pre>
+ */
+public class StartupBenchmark {
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final long POLL_MILLIS = 10;
+
+    private final Options options;
+    private final String runId;
+    private final HttpClient httpClient;
+
+    StartupBenchmark(Options options) {
+        this.options = options;
+        this.runId = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault()).format(Instant.now());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Report report = new StartupBenchmark(options).run();
+        ObjectMapper mapper = JsonMapper.builder()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build();
+        Path path = Path.of(options.getReport() != null ? options.getReport() : "target/startup/" + report.getRunId() + ".json");
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        mapper.writeValue(path.toFile(), report);
+        report.getVariants().forEach((name, variant) -> System.out.printf(
+                "%-10s first search after min %6d ms  median %6d ms  max %6d ms  (%s)%n",
+                name, variant.getMinMillis(), variant.getMedianMillis(), variant.getMaxMillis(), variant.getRunsMillis()));
+        System.out.println("Report written to " + path.toAbsolutePath());
+    }
+
+    Report run() throws Exception {
+        Report report = new Report();
+        report.setRunId(runId);
+        report.setOptions(options);
+        Map<String, List<String>> commands = new LinkedHashMap<>();
+        for (String variant : options.getVariants()) {
+            commands.put(variant, command(variant));
+        }
+        awaitPortFree();
+        for (int run = 1; run <= options.getRuns(); run++) {
+            for (Map.Entry<String, List<String>> entry : commands.entrySet()) {
+                long millis = measure(entry.getKey(), run, entry.getValue());
+                System.out.printf("Run %d %s: %d ms%n", run, entry.getKey(), millis);
+                report.getVariants().computeIfAbsent(entry.getKey(), name -> {
+                    Variant variant = new Variant();
+                    variant.setCommand(String.join(" ", entry.getValue()));
+                    return variant;
+                }).getRunsMillis().add(millis);
+            }
+        }
+        report.getVariants().values().forEach(Variant::summarize);
+        return report;
+    }
+
+    private List<String> command(String variant) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options.getJvmArgs());
+        switch (variant) {
+            case "jar" -> command.addAll(List.of("-jar", options.getJar()));
+            case "faststart" -> {
+                Path directory = Path.of(options.getFaststartDir());
+                Path archive = directory.resolve("application.jsa");
+                if (!Files.isRegularFile(archive)) {
+                    throw new IllegalStateException("No CDS archive at " + archive + "; run mvn -P faststart package first");
+                }
+                command.addAll(List.of("-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off",
+                        "-Dspring.aot.enabled=true", "-jar", applicationJar(directory).toString()));
+            }
+            default -> throw new IllegalArgumentException("Unknown variant: " + variant);
+        }
+        command.addAll(options.getAppArgs());
+        return command;
+    }
+
+    // The extracted application jar sits next to its lib directory
+    private static Path applicationJar(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + directory));
+        }
+    }
+
+    private long measure(String variant, int run, List<String> command) throws Exception {
+        HttpRequest search = HttpRequest.newBuilder(URI.create(options.getUrl() + "/api/batteries/search?" + options.getQuery()))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        Path log = Path.of("target/startup/" + runId + "-" + variant + "-" + run + ".log");
+        Files.createDirectories(log.toAbsolutePath().getParent());
+        long start = System.nanoTime();
+        Process app = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long deadline = start + STARTUP_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                try {
+                    if (httpClient.send(search, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                if (!app.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + app.exitValue() + "; see " + log);
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            throw new IllegalStateException("No successful search after " + STARTUP_TIMEOUT.toSeconds() + "s; see " + log);
+        } finally {
+            app.destroy();
+            if (!app.waitFor(30, TimeUnit.SECONDS)) {
+                app.destroyForcibly().waitFor();
+            }
+            awaitPortFree();
+        }
+    }
+
+    // A server that is still listening would answer the next run's first search
+    private void awaitPortFree() throws InterruptedException {
+        HttpRequest probe = HttpRequest.newBuilder(URI.create(options.getUrl() + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                httpClient.send(probe, HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Something is still listening at " + options.getUrl() + "; stop it first");
+    }
+
+    /**
+     * Benchmark settings, parsed from {@code --name=value} arguments like {@link LoadTestConfig}.
+     */
+    @Data
+    static class Options {
+        private String url = "http://localhost:8080";
+        private int runs = 5;
+        private List<String> variants = List.of("jar", "faststart");
+        private String jar = "target/vpp-0.0.1-SNAPSHOT.jar";
+        private String faststartDir = "target/faststart";
+        // A narrow range, so the first query itself adds little to the measurement
+        private String query = "minPostcode=6000&maxPostcode=6009";
+        private List<String> jvmArgs = List.of();
+        private List<String> appArgs = List.of();
+        private String report;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "url" -> options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    case "runs" -> options.runs = Integer.parseInt(value);
+                    case "variants" -> options.variants = List.of(value.split(","));
+                    case "jar" -> options.jar = value;
+                    case "faststart-dir" -> options.faststartDir = value;
+                    case "query" -> options.query = value;
+                    case "jvm-args" -> options.jvmArgs = split(value);
+                    case "app-args" -> options.appArgs = split(value);
+                    case "report" -> options.report = value;
+                    default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                }
+            }
+            if (options.runs < 1 || options.variants.isEmpty()) {
+                throw new IllegalArgumentException("runs must be positive and variants not empty");
+            }
+            return options;
+        }
+
+        private static List<String> split(String value) {
+            return value.isBlank() ? List.of() : List.of(value.trim().split("\\s+"));
+        }
+    }
+
+    @Data
+    static class Report {
+        private String runId;
+        private Options options;
+        private Map<String, Variant> variants = new LinkedHashMap<>();
+    }
+
+    @Data
+    static class Variant {
+        private String command;
+        private List<Long> runsMillis = new ArrayList<>();
+        private long minMillis;
+        private long medianMillis;
+        private long maxMillis;
+
+        void summarize() {
+            List<Long> sorted = runsMillis.stream().sorted().toList();
+            minMillis = sorted.get(0);
+            medianMillis = sorted.get(sorted.size() / 2);
+            maxMillis = sorted.get(sorted.size() - 1);
+        }
+    }
+}
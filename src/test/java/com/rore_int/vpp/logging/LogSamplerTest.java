@@ -0,0 +1,44 @@
+package com.rore_int.vpp.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogSamplerTest {
+
+    @Test
+    void sample_shouldLogFirstCallAndThenOneInEveryRatePerKey() {
+        LogSampler sampler = new LogSampler(3, Duration.ofSeconds(1));
+
+        assertTrue(sampler.sample("search"));
+        assertFalse(sampler.sample("search"));
+        // A different key has its own counter
+        assertTrue(sampler.sample("create"));
+        assertFalse(sampler.sample("search"));
+        assertTrue(sampler.sample("search"));
+    }
+
+    @Test
+    void sample_shouldLogEverythingWhenRateIsOne() {
+        LogSampler sampler = new LogSampler(1, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(sampler.sample("search"));
+        }
+    }
+
+    @Test
+    void isSlow_shouldCompareElapsedTimeWithThreshold() {
+        LogSampler sampler = new LogSampler(100, Duration.ofMillis(50));
+
+        assertFalse(sampler.isSlow(System.nanoTime()));
+        assertTrue(sampler.isSlow(System.nanoTime() - Duration.ofMillis(60).toNanos()));
+    }
+
+    @Test
+    void constructor_shouldRejectRateBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> new LogSampler(0, Duration.ofSeconds(1)));
+    }
+}
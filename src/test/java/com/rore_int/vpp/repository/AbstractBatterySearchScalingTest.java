@@ -0,0 +1,64 @@
+package com.rore_int.vpp.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loads 1M and then 10M batteries with uniformly spread postcodes and checks that the search
+ * queries for a typical postcode range are planned as index scans, not sequential scans.
+ * Tagged "scaling" and excluded from the default build; run with {@code mvn -P scaling test}.
+ * Each subclass declares its own container so schema variants never share a database.
+ */
+@Tag("scaling")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+abstract class AbstractBatterySearchScalingTest {
+
+    // Mirrors the SQL Hibernate generates for BatteryRepository, with the parameters inlined
+    private static final String RANGE = "b1_0.postcode between 6000 and 6200";
+    private static final String AGGREGATE = "select count(b1_0.id),sum(b1_0.capacity),avg(b1_0.capacity) "
+            + "from batteries b1_0 where " + RANGE;
+    private static final String NAMES_WITH_CAPACITY = "select b1_0.name from batteries b1_0 where " + RANGE
+            + " and b1_0.capacity>=10000 and b1_0.capacity<=60000 order by b1_0.name";
+    private static final String KEYSET_PAGE = "select b1_0.name,b1_0.id from batteries b1_0 where " + RANGE
+            + " and (b1_0.name,b1_0.id)>('B-5',5) order by b1_0.name,b1_0.id fetch first 101 rows only";
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000_000, 10_000_000})
+    void rangeSearches_shouldNotSeqScanAtScale(int rows) {
+        growTo(rows);
+
+        for (String query : List.of(AGGREGATE, NAMES_WITH_CAPACITY, KEYSET_PAGE)) {
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query, String.class));
+            assertFalse(plan.contains("Seq Scan"), "Sequential scan at " + rows + " rows:\n" + plan);
+            assertPlan(plan);
+        }
+    }
+
+    // Hook for schema-specific expectations
+    protected void assertPlan(String plan) {
+    }
+
+    private void growTo(int rows) {
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM batteries", Long.class);
+        jdbcTemplate.update("INSERT INTO batteries (id, name, postcode, capacity) "
+                + "SELECT nextval('batteries_seq'), 'B-' || g, g % 10000, 10000 + g % 50000 "
+                + "FROM generate_series(?, ?) g", existing + 1, (long) rows);
+        jdbcTemplate.execute("ANALYZE batteries");
+    }
+}
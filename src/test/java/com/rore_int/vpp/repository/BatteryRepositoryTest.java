@@ -1,19 +1,31 @@
 package com.rore_int.vpp.repository;
 
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryNameCapacity;
+import com.rore_int.vpp.dto.BatteryNameId;
+import com.rore_int.vpp.dto.PostcodeStatistics;
 import com.rore_int.vpp.entity.Battery;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,9 +41,21 @@ public class BatteryRepositoryTest {
             .withUsername("test")
             .withPassword("test");
 
+    private static final int FLEET_SIZE = 10_000;
+    private static final int JDBC_BATCH_SIZE = 50;
+
     @Autowired
     private BatteryRepository batteryRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private List<Battery> batteries;
 
     @BeforeEach
@@ -69,6 +93,89 @@ public class BatteryRepositoryTest {
         assertEquals("Midland", savedBatteries.get(1).getName());
     }
 
+    @Test
+    void saveAll_shouldBatchInsertsForLargeFleets() {
+        List<Battery> fleet = new ArrayList<>(FLEET_SIZE);
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            Battery battery = new Battery();
+            battery.setName("Fleet-" + i);
+            battery.setPostcode("6000");
+            battery.setCapacity(10000 + i);
+            fleet.add(battery);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        batteryRepository.saveAll(fleet);
+        entityManager.flush();
+
+        assertEquals(FLEET_SIZE, statistics.getEntityInsertCount());
+        // One INSERT per JDBC batch plus one sequence call per allocation block, not one round-trip per battery
+        long expectedStatements = 2L * FLEET_SIZE / JDBC_BATCH_SIZE;
+        assertTrue(statistics.getPrepareStatementCount() <= expectedStatements + 2,
+                "Expected at most " + (expectedStatements + 2) + " statements but was "
+                        + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void insertIfAbsent_shouldInsertOnlyNewNaturalKeysAndReturnExistingRows() {
+        // The unique index ships in the optional db/natural-key migration; DDL rolls back with the test
+        jdbcTemplate.execute("CREATE UNIQUE INDEX uq_batteries_name_postcode ON batteries (name, postcode)");
+        entityManager.flush();
+        Long canningtonId = batteries.get(0).getId();
+
+        Battery replayed = new Battery();
+        replayed.setName("Cannington");
+        replayed.setPostcode("6107");
+        replayed.setCapacity(99999);
+        Battery added = new Battery();
+        added.setName("Armadale");
+        added.setPostcode("0800");
+        added.setCapacity(12000);
+        Battery repeated = new Battery();
+        repeated.setName("Armadale");
+        repeated.setPostcode("0800");
+        repeated.setCapacity(15000);
+
+        List<Battery> inserted = batteryRepository.insertIfAbsent(List.of(replayed, added, repeated));
+
+        assertEquals(List.of(added), inserted);
+        assertEquals(canningtonId, replayed.getId());
+        // Existing rows are not rewritten
+        assertEquals(13500, replayed.getCapacity());
+        assertNotNull(added.getId());
+        assertEquals(added.getId(), repeated.getId());
+        assertEquals(12000, repeated.getCapacity());
+        assertEquals(3, batteryRepository.count());
+        assertEquals(List.of("Armadale"), batteryRepository.findNamesByPostcodeRangeAndCapacity(
+                "0800", "0800", null, null));
+    }
+
+    @Test
+    void insertIfAbsent_shouldInsertRowsInNaturalKeyOrder() {
+        jdbcTemplate.execute("CREATE UNIQUE INDEX uq_batteries_name_postcode ON batteries (name, postcode)");
+        Battery zeta = new Battery();
+        zeta.setName("Zeta");
+        zeta.setPostcode("6000");
+        zeta.setCapacity(10000);
+        Battery alphaHigh = new Battery();
+        alphaHigh.setName("Alpha");
+        alphaHigh.setPostcode("6100");
+        alphaHigh.setCapacity(11000);
+        Battery alphaLow = new Battery();
+        alphaLow.setName("Alpha");
+        alphaLow.setPostcode("0800");
+        alphaLow.setCapacity(12000);
+
+        List<Battery> inserted = batteryRepository.insertIfAbsent(List.of(zeta, alphaHigh, alphaLow));
+
+        // Results keep the request's order, while ids show the rows were inserted sorted by (name, postcode)
+        assertEquals(List.of(zeta, alphaHigh, alphaLow), inserted);
+        assertTrue(alphaLow.getId() < alphaHigh.getId());
+        assertTrue(alphaHigh.getId() < zeta.getId());
+    }
+
     @Test
     void findAll_shouldReturnAllBatteries() {
         List<Battery> foundBatteries = batteryRepository.findAll();
@@ -79,38 +186,122 @@ public class BatteryRepositoryTest {
     }
 
     @Test
-    void findByPostcodeRangeAndCapacity_shouldReturnBatteriesInRangeSortedByName() {
-        List<Battery> foundBatteries = batteryRepository.findByPostcodeRangeAndCapacity("6000", "6200", 10000, 60000);
+    void findNamesByPostcodeRangeAndCapacity_shouldReturnEmptyWhenNoBatteriesInRange() {
+        List<String> names = batteryRepository.findNamesByPostcodeRangeAndCapacity("7000", "7200", null, null);
 
-        assertEquals(2, foundBatteries.size());
-        assertEquals("Cannington", foundBatteries.get(0).getName());
-        assertEquals("Midland", foundBatteries.get(1).getName());
-        assertEquals(13500, foundBatteries.get(0).getCapacity());
-        assertEquals(50500, foundBatteries.get(1).getCapacity());
+        assertTrue(names.isEmpty());
     }
 
     @Test
-    void findByPostcodeRangeAndCapacity_shouldReturnEmptyWhenNoBatteriesInRange() {
-        List<Battery> foundBatteries = batteryRepository.findByPostcodeRangeAndCapacity("7000", "7200", null, null);
+    void findNamesByPostcodeRangeAndCapacity_shouldFilterByMinCapacityOnly() {
+        List<String> names = batteryRepository.findNamesByPostcodeRangeAndCapacity("6000", "6200", 50000, null);
 
-        assertTrue(foundBatteries.isEmpty());
+        assertEquals(List.of("Midland"), names);
     }
 
     @Test
-    void findByPostcodeRangeAndCapacity_shouldFilterByMinCapacityOnly() {
-        List<Battery> foundBatteries = batteryRepository.findByPostcodeRangeAndCapacity("6000", "6200", 50000, null);
+    void findNamesByPostcodeRangeAndCapacity_shouldFilterByMaxCapacityOnly() {
+        List<String> names = batteryRepository.findNamesByPostcodeRangeAndCapacity("6000", "6200", null, 20000);
 
-        assertEquals(1, foundBatteries.size());
-        assertEquals("Midland", foundBatteries.get(0).getName());
-        assertEquals(50500, foundBatteries.get(0).getCapacity());
+        assertEquals(List.of("Cannington"), names);
     }
 
     @Test
-    void findByPostcodeRangeAndCapacity_shouldFilterByMaxCapacityOnly() {
-        List<Battery> foundBatteries = batteryRepository.findByPostcodeRangeAndCapacity("6000", "6200", null, 20000);
+    void findNamesByPostcodeRangeAndCapacity_shouldReturnSortedNames() {
+        List<String> names = batteryRepository.findNamesByPostcodeRangeAndCapacity("6000", "6200", 10000, 60000);
 
-        assertEquals(1, foundBatteries.size());
-        assertEquals("Cannington", foundBatteries.get(0).getName());
-        assertEquals(13500, foundBatteries.get(0).getCapacity());
+        assertEquals(List.of("Cannington", "Midland"), names);
+    }
+
+    @Test
+    void aggregateByPostcodeRangeAndCapacity_shouldReturnCountTotalAndAverage() {
+        BatteryCapacityStats stats = batteryRepository.aggregateByPostcodeRangeAndCapacity("6000", "6200", null, null);
+
+        assertEquals(2, stats.getCount());
+        assertEquals(64000, stats.getTotalCapacity());
+        assertEquals(32000.0, stats.getAverageCapacity(), 0.01);
+    }
+
+    @Test
+    void aggregateByPostcodeRangeAndCapacity_shouldReturnZerosWhenNoBatteriesInRange() {
+        BatteryCapacityStats stats = batteryRepository.aggregateByPostcodeRangeAndCapacity("7000", "7200", null, null);
+
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getTotalCapacity());
+        assertEquals(0.0, stats.getAverageCapacity(), 0.01);
+    }
+
+    @Test
+    void streamByPostcodeRangeAndCapacity_shouldStreamNamesAndCapacitiesSortedByName() {
+        try (Stream<BatteryNameCapacity> rows = batteryRepository.streamByPostcodeRangeAndCapacity("6000", "6200", null, null)) {
+            List<BatteryNameCapacity> found = rows.toList();
+
+            assertEquals(2, found.size());
+            assertEquals(new BatteryNameCapacity("Cannington", 13500), found.get(0));
+            assertEquals(new BatteryNameCapacity("Midland", 50500), found.get(1));
+        }
+    }
+
+    @Test
+    void streamStatisticsByPostcode_shouldGroupByPostcodeWithMedian() {
+        Battery second = new Battery();
+        second.setName("Bassendean");
+        second.setPostcode("6107");
+        second.setCapacity(20000);
+        Battery third = new Battery();
+        third.setName("Kenwick");
+        third.setPostcode("6107");
+        third.setCapacity(9000);
+        batteryRepository.saveAll(List.of(second, third));
+
+        List<PostcodeStatistics> statistics;
+        try (Stream<PostcodeStatistics> rows = batteryRepository.streamStatisticsByPostcode("6000", "6200", null, null)) {
+            statistics = rows.toList();
+        }
+
+        assertEquals(List.of(
+                new PostcodeStatistics("6057", 1L, 50500L, 1L, 50500, 50500, 50500),
+                new PostcodeStatistics("6107", 3L, 42500L, 3L, 9000, 20000, 13500)), statistics);
+    }
+
+    @Test
+    void streamTotalsByPostcode_shouldAverageOnlyBatteriesWithACapacity() {
+        Battery withoutCapacity = new Battery();
+        withoutCapacity.setName("Bassendean");
+        withoutCapacity.setPostcode("6057");
+        batteryRepository.save(withoutCapacity);
+
+        List<PostcodeStatistics> statistics;
+        try (Stream<PostcodeStatistics> rows = batteryRepository.streamTotalsByPostcode("6057", "6057", null, null)) {
+            statistics = rows.toList();
+        }
+
+        assertEquals(List.of(new PostcodeStatistics("6057", 2L, 50500L, 1L, 50500, 50500)), statistics);
+        // Same as AVG(capacity) on /search: the battery without a capacity is not averaged
+        assertEquals(50500.0, statistics.get(0).getAverageCapacity());
+        assertEquals(50500.0, batteryRepository.aggregateByPostcodeRangeAndCapacity("6057", "6057", null, null)
+                .getAverageCapacity());
+    }
+
+    @Test
+    void findPageByPostcodeRangeAndCapacity_shouldSeekPastCursorIncludingDuplicateNames() {
+        Battery duplicate = new Battery();
+        duplicate.setName("Cannington");
+        duplicate.setPostcode("6108");
+        duplicate.setCapacity(20000);
+        batteryRepository.save(duplicate);
+
+        List<BatteryNameId> first = batteryRepository.findFirstPageByPostcodeRangeAndCapacity(
+                "6000", "6200", null, null, Limit.of(2));
+        assertEquals(2, first.size());
+        assertEquals("Cannington", first.get(0).getName());
+        assertEquals("Cannington", first.get(1).getName());
+        assertTrue(first.get(0).getId() < first.get(1).getId());
+
+        BatteryNameId last = first.get(1);
+        List<BatteryNameId> next = batteryRepository.findPageAfterByPostcodeRangeAndCapacity(
+                "6000", "6200", null, null, last.getName(), last.getId(), Limit.of(2));
+        assertEquals(1, next.size());
+        assertEquals("Midland", next.get(0).getName());
     }
-}
\ No newline at end of file
+}
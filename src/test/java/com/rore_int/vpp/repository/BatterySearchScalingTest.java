@@ -0,0 +1,21 @@
+package com.rore_int.vpp.repository;
+
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers
+public class BatterySearchScalingTest extends AbstractBatterySearchScalingTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Override
+    protected void assertPlan(String plan) {
+        assertTrue(plan.contains("idx_batteries_"), "Expected a batteries index in:\n" + plan);
+    }
+}
@@ -0,0 +1,27 @@
+package com.rore_int.vpp.repository;
+
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers
+@TestPropertySource(properties = "spring.flyway.locations=classpath:db/migration,classpath:db/partitioning")
+public class PartitionedBatterySearchScalingTest extends AbstractBatterySearchScalingTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Override
+    protected void assertPlan(String plan) {
+        // 6000-6200 lies in one partition; the others must be pruned
+        assertTrue(plan.contains("batteries_p6"), "Expected partition batteries_p6 in:\n" + plan);
+        assertFalse(plan.contains("batteries_p5") || plan.contains("batteries_p7"),
+                "Expected other partitions to be pruned in:\n" + plan);
+    }
+}
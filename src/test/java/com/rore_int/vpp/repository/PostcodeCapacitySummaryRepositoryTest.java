@@ -0,0 +1,135 @@
+package com.rore_int.vpp.repository;
+
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.PostcodeStatistics;
+import com.rore_int.vpp.entity.Battery;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the V7 and V8 triggers keep the postcode capacity summary in step with every kind
+ * of write to {@code batteries}, before and after folding, and that the reconciliation queries
+ * find and repair drift.
+ */
+@Testcontainers
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostcodeCapacitySummaryRepository.class)
+public class PostcodeCapacitySummaryRepositoryTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private BatteryRepository batteryRepository;
+
+    @Autowired
+    private PostcodeCapacitySummaryRepository summaryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void inserts_shouldAddToSummary() {
+        batteryRepository.saveAllAndFlush(List.of(
+                battery("A", "2000", 100), battery("B", "2000", 300), battery("C", "2001", 50)));
+        jdbcTemplate.update("INSERT INTO batteries (id, name, postcode, capacity) "
+                + "VALUES (nextval('batteries_seq'), 'D', 2000, 20)");
+
+        List<PostcodeStatistics> statistics = summaryRepository.findByPostcodeRange("2000", "2001");
+
+        assertEquals(2, statistics.size());
+        assertEquals(new PostcodeStatistics("2000", 3L, 420L, 3L, 20, 300), statistics.get(0));
+        assertEquals(new PostcodeStatistics("2001", 1L, 50L, 1L, 50, 50), statistics.get(1));
+        BatteryCapacityStats stats = summaryRepository.aggregateByPostcodeRange("2000", "2001");
+        assertEquals(4, stats.getCount());
+        assertEquals(470, stats.getTotalCapacity());
+        assertEquals(0, summaryRepository.countMismatches());
+    }
+
+    @Test
+    void aggregate_shouldAverageOnlyBatteriesWithACapacity() {
+        batteryRepository.saveAllAndFlush(List.of(battery("A", "7000", 100), battery("B", "7000", 300)));
+        jdbcTemplate.update("INSERT INTO batteries (id, name, postcode, capacity) "
+                + "VALUES (nextval('batteries_seq'), 'C', 7000, NULL)");
+
+        BatteryCapacityStats pending = summaryRepository.aggregateByPostcodeRange("7000", "7000");
+        summaryRepository.fold();
+        BatteryCapacityStats folded = summaryRepository.aggregateByPostcodeRange("7000", "7000");
+
+        for (BatteryCapacityStats stats : List.of(pending, folded)) {
+            assertEquals(3, stats.getCount());
+            assertEquals(400, stats.getTotalCapacity());
+            // Matches AVG(capacity), which skips the battery without a capacity
+            assertEquals(200.0, stats.getAverageCapacity());
+        }
+        assertEquals(0, summaryRepository.countMismatches());
+    }
+
+    @Test
+    void fold_shouldMoveDeltasIntoSummaryWithoutChangingTotals() {
+        batteryRepository.saveAllAndFlush(List.of(battery("A", "5000", 100), battery("B", "5001", 200)));
+        batteryRepository.saveAllAndFlush(List.of(battery("C", "5000", 40)));
+
+        assertEquals(2, summaryRepository.fold());
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM postcode_capacity_summary_delta", Integer.class));
+        assertEquals(List.of(new PostcodeStatistics("5000", 2L, 140L, 2L, 40, 100),
+                        new PostcodeStatistics("5001", 1L, 200L, 1L, 200, 200)),
+                summaryRepository.findByPostcodeRange("5000", "5001"));
+        assertEquals(0, summaryRepository.countMismatches());
+    }
+
+    @Test
+    void updatesAndDeletes_shouldRecomputeTouchedPostcodes() {
+        batteryRepository.saveAllAndFlush(List.of(
+                battery("A", "3000", 100), battery("B", "3000", 300), battery("C", "3001", 50)));
+
+        jdbcTemplate.update("UPDATE batteries SET postcode = 3001 WHERE name = 'B'");
+        jdbcTemplate.update("DELETE FROM batteries WHERE name = 'A'");
+
+        List<PostcodeStatistics> statistics = summaryRepository.findByPostcodeRange("3000", "3001");
+
+        assertEquals(List.of(new PostcodeStatistics("3001", 2L, 350L, 2L, 50, 300)), statistics);
+        assertEquals(0, summaryRepository.countMismatches());
+    }
+
+    @Test
+    void rebuild_shouldRepairDrift() {
+        batteryRepository.saveAllAndFlush(List.of(battery("A", "4000", 100), battery("B", "4001", 200)));
+        summaryRepository.fold();
+        jdbcTemplate.update("UPDATE postcode_capacity_summary SET total_capacity = 0 WHERE postcode = 4000");
+        jdbcTemplate.update("DELETE FROM postcode_capacity_summary WHERE postcode = 4001");
+
+        assertEquals(2, summaryRepository.countMismatches());
+
+        summaryRepository.rebuild();
+
+        assertEquals(0, summaryRepository.countMismatches());
+        assertEquals(300, summaryRepository.aggregateByPostcodeRange("4000", "4001").getTotalCapacity());
+    }
+
+    private static Battery battery(String name, String postcode, int capacity) {
+        Battery battery = new Battery();
+        battery.setName(name);
+        battery.setPostcode(postcode);
+        battery.setCapacity(capacity);
+        return battery;
+    }
+}
@@ -0,0 +1,159 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.exception.OverloadedException;
+import com.rore_int.vpp.service.AdmissionLimiter.Priority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionLimiterTest {
+    private static final long TARGET_NANOS = Duration.ofMillis(250).toNanos();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    // The application defaults
+    static AdmissionLimiter limiter() {
+        return limiter(new SimpleMeterRegistry(), 20);
+    }
+
+    private static AdmissionLimiter limiter(MeterRegistry registry, int initialLimit) {
+        return new AdmissionLimiter(registry, true, initialLimit, 4, 200, Duration.ofMillis(250), 0.9,
+                1000, 0.5, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void acquire_shouldShedRequestsOverTheLimitWithRetryAfter() {
+        AdmissionLimiter limiter = limiter(registry, 4);
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire(Priority.SMALL);
+        }
+
+        OverloadedException exception = assertThrows(OverloadedException.class,
+                () -> limiter.acquire(Priority.SMALL));
+
+        assertEquals(1, exception.getRetryAfterSeconds());
+        assertEquals(4, limiter.getInFlight());
+        assertEquals(1.0, registry.get("vpp.admission.shed").tag("priority", "small").counter().count());
+        assertEquals(4.0, registry.get("vpp.admission.limit").gauge().value());
+        assertEquals(4.0, registry.get("vpp.admission.inflight").gauge().value());
+    }
+
+    @Test
+    void acquire_shouldShedLargeRequestsBeforeSmallOnes() {
+        AdmissionLimiter limiter = limiter(registry, 4);
+        limiter.acquire(Priority.LARGE);
+        limiter.acquire(Priority.SMALL);
+
+        assertThrows(OverloadedException.class, () -> limiter.acquire(Priority.LARGE));
+        limiter.acquire(Priority.SMALL);
+        limiter.acquire(Priority.SMALL);
+
+        assertEquals(4, limiter.getInFlight());
+        assertEquals(1.0, registry.get("vpp.admission.shed").tag("priority", "large").counter().count());
+        assertEquals(0.0, registry.get("vpp.admission.shed").tag("priority", "small").counter().count());
+    }
+
+    @Test
+    void checkHeadroom_shouldShedWithoutTakingAPermit() {
+        AdmissionLimiter limiter = limiter(registry, 4);
+        limiter.checkHeadroom(Priority.LARGE);
+        limiter.acquire(Priority.SMALL);
+        limiter.acquire(Priority.SMALL);
+
+        assertThrows(OverloadedException.class, () -> limiter.checkHeadroom(Priority.LARGE));
+        limiter.checkHeadroom(Priority.SMALL);
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1.0, registry.get("vpp.admission.shed").tag("priority", "large").counter().count());
+    }
+
+    @Test
+    void release_shouldFreeThePermitOnlyOnce() {
+        AdmissionLimiter limiter = limiter(registry, 4);
+        AdmissionLimiter.Permit permit = limiter.acquire(Priority.SMALL);
+
+        permit.release();
+        permit.release();
+
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void acquire_shouldNeverShedWhenDisabled() {
+        AdmissionLimiter limiter = new AdmissionLimiter(registry, false, 1, 1, 1, Duration.ofMillis(250), 0.9,
+                1, 0.5, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(Priority.LARGE);
+        }
+
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void onComplete_shouldBackOffOncePerTargetIntervalOfSlowRequests() {
+        AdmissionLimiter limiter = limiter(registry, 20);
+        long now = System.nanoTime();
+
+        limiter.onComplete(Priority.SMALL, TARGET_NANOS * 2, false, 20, now);
+        limiter.onComplete(Priority.SMALL, TARGET_NANOS * 2, false, 20, now + TARGET_NANOS / 2);
+        assertEquals(18, limiter.getLimit());
+
+        limiter.onComplete(Priority.SMALL, TARGET_NANOS * 2, false, 20, now + TARGET_NANOS);
+        assertEquals(16, limiter.getLimit());
+    }
+
+    @Test
+    void onComplete_shouldNotBackOffBelowTheMinimum() {
+        AdmissionLimiter limiter = limiter(registry, 4);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onComplete(Priority.SMALL, TARGET_NANOS * 2, false, 4, now + i * TARGET_NANOS);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void onComplete_shouldGrowByOnePerLimitOfFastRequestsWhileTheLimitIsInUse() {
+        AdmissionLimiter limiter = limiter(registry, 10);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onComplete(Priority.SMALL, TARGET_NANOS / 10, false, 10, now);
+        }
+        assertEquals(10, limiter.getLimit());
+        limiter.onComplete(Priority.SMALL, TARGET_NANOS / 10, false, 10, now);
+
+        assertEquals(11, limiter.getLimit());
+    }
+
+    @Test
+    void onComplete_shouldNotGrowAnIdleLimit() {
+        AdmissionLimiter limiter = limiter(registry, 10);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onComplete(Priority.SMALL, TARGET_NANOS / 10, false, 1, now);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void onComplete_shouldIgnoreLargeRequestLatencyButBackOffOnTheirRejections() {
+        AdmissionLimiter limiter = limiter(registry, 20);
+        long now = System.nanoTime();
+
+        limiter.onComplete(Priority.LARGE, TARGET_NANOS * 10, false, 20, now);
+        assertEquals(20, limiter.getLimit());
+
+        limiter.onComplete(Priority.LARGE, TARGET_NANOS / 10, true, 20, now);
+        assertEquals(18, limiter.getLimit());
+    }
+}
@@ -0,0 +1,139 @@
+package com.rore_int.vpp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rore_int.vpp.dto.BatteryIngestSummary;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.metrics.BatteryMetrics;
+import com.rore_int.vpp.repository.BatteryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatteryIngestServiceTest {
+
+    @Mock
+    private BatteryRepository batteryRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private BatteryIngestService batteryIngestService;
+
+    @BeforeEach
+    void setUp() {
+        batteryIngestService = ingestService(false);
+    }
+
+    private BatteryIngestService ingestService(boolean naturalKeyEnabled) {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        return new BatteryIngestService(batteryRepository, eventPublisher, new ObjectMapper(), validator,
+                new BatteryMetrics(new SimpleMeterRegistry()), AdmissionLimiterTest.limiter(),
+                new IdempotentBatteryWriter(batteryRepository, null, naturalKeyEnabled, Duration.ofHours(24)), 2, 1);
+    }
+
+    @Test
+    void ingest_shouldCommitValidBatteriesInChunks() {
+        List<Integer> chunkSizes = new ArrayList<>();
+        when(batteryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Battery> chunk = invocation.getArgument(0);
+            chunkSizes.add(chunk.size());
+            return chunk;
+        });
+
+        BatteryIngestSummary summary = batteryIngestService.ingest(ndjson(
+                "{\"name\":\"Cannington\",\"postcode\":\"6107\",\"capacity\":13500}",
+                "{\"name\":\"Midland\",\"postcode\":\"6057\",\"capacity\":50500}",
+                "",
+                "{\"name\":\"Hay Street\",\"postcode\":\"6000\",\"capacity\":67000}"));
+
+        assertEquals(3, summary.getAccepted());
+        assertEquals(0, summary.getRejected());
+        assertTrue(summary.getRejections().isEmpty());
+        assertEquals(List.of(2, 1), chunkSizes);
+        verify(eventPublisher, times(2)).publishEvent(any(BatteriesSavedEvent.class));
+    }
+
+    @Test
+    void ingest_shouldRejectInvalidLinesWithLineNumbers() {
+        List<String> savedNames = new ArrayList<>();
+        when(batteryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Battery> chunk = invocation.getArgument(0);
+            chunk.forEach(battery -> savedNames.add(battery.getName()));
+            return chunk;
+        });
+
+        BatteryIngestSummary summary = batteryIngestService.ingest(ndjson(
+                "{\"name\":\"Cannington\",\"postcode\":\"6107\",\"capacity\":13500}",
+                "{\"name\":\"\",\"postcode\":\"123\",\"capacity\":0}",
+                "{not json"));
+
+        assertEquals(1, summary.getAccepted());
+        assertEquals(2, summary.getRejected());
+        // Only one rejection is itemised because the report is capped
+        assertEquals(1, summary.getRejections().size());
+        BatteryIngestSummary.Rejection rejection = summary.getRejections().get(0);
+        assertEquals(2, rejection.getLine());
+        assertTrue(rejection.getReason().contains("name: Name is mandatory"));
+        assertTrue(rejection.getReason().contains("postcode: Postcode must be a 4-digit number"));
+        assertTrue(rejection.getReason().contains("capacity: Capacity must be positive"));
+        assertEquals(List.of("Cannington"), savedNames);
+    }
+
+    @Test
+    void ingest_shouldCountExistingNaturalKeysAsDuplicatesWhenEnabled() {
+        batteryIngestService = ingestService(true);
+        // Cannington is already stored, so only Midland is inserted from the first chunk
+        when(batteryRepository.insertIfAbsent(anyList())).thenAnswer(invocation -> {
+            List<Battery> chunk = invocation.getArgument(0);
+            return chunk.stream().filter(battery -> !battery.getName().equals("Cannington")).toList();
+        });
+
+        BatteryIngestSummary summary = batteryIngestService.ingest(ndjson(
+                "{\"name\":\"Cannington\",\"postcode\":\"6107\",\"capacity\":13500}",
+                "{\"name\":\"Midland\",\"postcode\":\"6057\",\"capacity\":50500}",
+                "{\"name\":\"Cannington\",\"postcode\":\"6107\",\"capacity\":13500}"));
+
+        assertEquals(1, summary.getAccepted());
+        assertEquals(2, summary.getDuplicates());
+        assertEquals(0, summary.getRejected());
+        verify(batteryRepository, times(2)).insertIfAbsent(anyList());
+        verify(batteryRepository, never()).saveAll(anyList());
+        // The second chunk inserted nothing, so only the first announces saved batteries
+        verify(eventPublisher, times(1)).publishEvent(any(BatteriesSavedEvent.class));
+    }
+
+    @Test
+    void ingest_shouldThrowDatabaseExceptionWhenChunkFails() {
+        when(batteryRepository.saveAll(anyList())).thenThrow(new EmptyResultDataAccessException(1));
+
+        DatabaseException thrown = assertThrows(DatabaseException.class, () -> batteryIngestService.ingest(ndjson(
+                "{\"name\":\"Cannington\",\"postcode\":\"6107\",\"capacity\":13500}")));
+        assertEquals("Failed to save batteries after 0 were committed", thrown.getMessage());
+        verify(batteryRepository, times(1)).saveAll(anyList());
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
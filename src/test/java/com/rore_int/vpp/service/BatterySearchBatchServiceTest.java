@@ -0,0 +1,171 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.BatterySearchQuery;
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.exception.OverloadedException;
+import com.rore_int.vpp.exception.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatterySearchBatchServiceTest {
+
+    @Mock
+    private BatteryService batteryService;
+
+    private ExecutorService executor;
+
+    private BatterySearchBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        batchService = new BatterySearchBatchService(batteryService, executor, 5, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void search_shouldReturnResponsesInQueryOrderAndSearchDuplicatesOnce() {
+        when(batteryService.searchBatteriesByPostcodeRange(anyString(), anyString(), any(), any(), anyBoolean()))
+                .thenAnswer(invocation -> response(Long.parseLong(invocation.getArgument(0))));
+
+        List<BatterySearchResponse> responses = batchService.search(List.of(
+                new BatterySearchQuery("6000", "6099", null, null),
+                new BatterySearchQuery("5000", "5099", 100, null),
+                new BatterySearchQuery("6000", "6099", null, null),
+                new BatterySearchQuery("4000", "4099", null, 500)), false);
+
+        assertEquals(List.of(6000L, 5000L, 6000L, 4000L),
+                responses.stream().map(BatterySearchResponse::getTotalCapacity).toList());
+        verify(batteryService, times(1)).searchBatteriesByPostcodeRange("6000", "6099", null, null, false);
+        verify(batteryService, times(3)).searchBatteriesByPostcodeRange(anyString(), anyString(), any(), any(), eq(false));
+    }
+
+    @Test
+    void search_shouldGiveDuplicateQueriesTheirOwnResponse() {
+        when(batteryService.searchBatteriesByPostcodeRange(anyString(), anyString(), any(), any(), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    BatterySearchResponse response = response(100);
+                    response.setBatteryNames(new ArrayList<>(List.of("A", "B")));
+                    return response;
+                });
+        BatterySearchQuery query = new BatterySearchQuery("6000", "6099", null, null);
+
+        List<BatterySearchResponse> responses = batchService.search(List.of(query, query), true);
+
+        assertEquals(responses.get(0), responses.get(1));
+        assertNotSame(responses.get(0), responses.get(1));
+        responses.get(0).getBatteryNames().add("C");
+        assertEquals(List.of("A", "B"), responses.get(1).getBatteryNames());
+        verify(batteryService, times(1)).searchBatteriesByPostcodeRange("6000", "6099", null, null, true);
+    }
+
+    @Test
+    void search_shouldRunAtMostParallelismQueriesAtOnce() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(batteryService.searchBatteriesByPostcodeRange(anyString(), anyString(), any(), any(), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    inFlight.decrementAndGet();
+                    return response(1);
+                });
+        List<BatterySearchQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            queries.add(new BatterySearchQuery("600" + i, "600" + i, null, null));
+        }
+
+        assertEquals(5, batchService.search(queries, true).size());
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    void search_shouldRejectInvalidQueryWithItsIndexBeforeSearching() {
+        doCallRealMethod().when(batteryService).validateSearchParameters(any(), any(), any(), any());
+
+        ValidationException exception = assertThrows(ValidationException.class, () -> batchService.search(List.of(
+                new BatterySearchQuery("6000", "6099", null, null),
+                new BatterySearchQuery("60", "6099", null, null)), true));
+
+        assertEquals("queries[1]: minPostcode must be a 4-digit number", exception.getMessage());
+        verify(batteryService, never()).searchBatteriesByPostcodeRange(anyString(), anyString(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void search_shouldRejectEmptyAndOversizedBatches() {
+        assertThrows(ValidationException.class, () -> batchService.search(List.of(), true));
+        List<BatterySearchQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            queries.add(new BatterySearchQuery("6000", "6099", null, null));
+        }
+        assertThrows(ValidationException.class, () -> batchService.search(queries, true));
+    }
+
+    @Test
+    void search_shouldKeepAnsweredQueriesWhenOthersAreShedOrFail() {
+        when(batteryService.searchBatteriesByPostcodeRange(anyString(), anyString(), any(), any(), anyBoolean()))
+                .thenAnswer(invocation -> switch ((String) invocation.getArgument(0)) {
+                    case "5000" -> throw new OverloadedException("Server is busy, retry later", 1);
+                    case "7000" -> throw new DatabaseException("Failed to search batteries", new RuntimeException());
+                    default -> response(Long.parseLong(invocation.getArgument(0)));
+                });
+
+        List<BatterySearchResponse> responses = batchService.search(List.of(
+                new BatterySearchQuery("6000", "6099", null, null),
+                new BatterySearchQuery("5000", "5099", null, null),
+                new BatterySearchQuery("7000", "7099", null, null),
+                new BatterySearchQuery("7000", "7099", null, null)), true);
+
+        assertEquals(6000L, responses.get(0).getTotalCapacity());
+        assertNull(responses.get(0).getError());
+        assertEquals("TOO_MANY_REQUESTS", responses.get(1).getError().getErrorCode());
+        assertEquals("DATABASE_ERROR", responses.get(2).getError().getErrorCode());
+        assertEquals("DATABASE_ERROR", responses.get(3).getError().getErrorCode());
+    }
+
+    @Test
+    void search_shouldThrowWhenNoQueryCouldBeAnswered() {
+        when(batteryService.searchBatteriesByPostcodeRange(anyString(), anyString(), any(), any(), anyBoolean()))
+                .thenThrow(new OverloadedException("Server is busy, retry later", 1));
+
+        assertThrows(OverloadedException.class, () -> batchService.search(List.of(
+                new BatterySearchQuery("6000", "6099", null, null),
+                new BatterySearchQuery("7000", "7099", null, null)), true));
+    }
+
+    @Test
+    void search_shouldPropagateDatabaseException() {
+        when(batteryService.searchBatteriesByPostcodeRange(anyString(), anyString(), any(), any(), anyBoolean()))
+                .thenThrow(new DatabaseException("Failed to search batteries", new RuntimeException()));
+
+        assertThrows(DatabaseException.class, () -> batchService.search(List.of(
+                new BatterySearchQuery("6000", "6099", null, null),
+                new BatterySearchQuery("7000", "7099", null, null)), true));
+    }
+
+    private static BatterySearchResponse response(long totalCapacity) {
+        BatterySearchResponse response = new BatterySearchResponse();
+        response.setTotalCapacity(totalCapacity);
+        return response;
+    }
+}
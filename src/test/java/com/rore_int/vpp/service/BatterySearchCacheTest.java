@@ -0,0 +1,105 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.dto.SearchCacheStats;
+import com.rore_int.vpp.entity.Battery;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatterySearchCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void get_shouldLoadOnceAndServeRepeatedSearchesFromCache() {
+        BatterySearchCache cache = new BatterySearchCache(true, 1000, Duration.ofMinutes(1));
+
+        BatterySearchResponse first = cache.get("6000", "6200", null, null, true, loader());
+        BatterySearchResponse second = cache.get("6000", "6200", null, null, true, loader());
+        cache.get("6000", "6200", 10000, null, true, loader());
+
+        assertSame(first, second);
+        assertEquals(2, loads.get());
+        SearchCacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    void onBatteriesSaved_shouldInvalidateOnlyRangesContainingSavedPostcodes() {
+        BatterySearchCache cache = new BatterySearchCache(true, 1000, Duration.ofMinutes(1));
+        cache.get("6000", "6200", null, null, true, loader());
+        cache.get("6100", "6100", null, null, true, loader());
+        cache.get("7000", "7200", null, null, true, loader());
+
+        cache.onBatteriesSaved(new BatteriesSavedEvent(List.of(battery("6150"), battery("5000"))));
+        cache.get("6000", "6200", null, null, true, loader());
+        cache.get("6100", "6100", null, null, true, loader());
+        cache.get("7000", "7200", null, null, true, loader());
+
+        assertEquals(4, loads.get());
+        assertEquals(1, cache.stats().getInvalidations());
+        assertEquals(2, cache.stats().getHits());
+    }
+
+    @Test
+    void get_shouldNotCacheResponseLoadedConcurrentlyWithACommit() {
+        BatterySearchCache cache = new BatterySearchCache(true, 1000, Duration.ofMinutes(1));
+
+        cache.get("6000", "6200", null, null, true, () -> {
+            // A commit lands while the search is still reading
+            cache.onBatteriesSaved(new BatteriesSavedEvent(List.of(battery("9000"))));
+            return loader().get();
+        });
+        cache.get("6000", "6200", null, null, true, loader());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_shouldEvictBySizeOfCachedNameLists() {
+        BatterySearchCache cache = new BatterySearchCache(true, 10, Duration.ofMinutes(1));
+
+        for (int postcode = 1000; postcode < 1010; postcode++) {
+            String code = String.valueOf(postcode);
+            cache.get(code, code, null, null, true, loader());
+        }
+
+        assertTrue(cache.stats().getSize() < 10);
+    }
+
+    @Test
+    void get_shouldAlwaysLoadWhenDisabled() {
+        BatterySearchCache cache = new BatterySearchCache(false, 1000, Duration.ofMinutes(1));
+
+        cache.get("6000", "6200", null, null, true, loader());
+        cache.get("6000", "6200", null, null, true, loader());
+
+        assertEquals(2, loads.get());
+    }
+
+    private Supplier<BatterySearchResponse> loader() {
+        return () -> {
+            loads.incrementAndGet();
+            BatterySearchResponse response = new BatterySearchResponse();
+            response.setBatteryNames(List.of("Cannington", "Midland"));
+            response.setTotalCapacity(64000);
+            response.setAverageCapacity(32000.0);
+            return response;
+        };
+    }
+
+    private static Battery battery(String postcode) {
+        Battery battery = new Battery();
+        battery.setName("Battery-" + postcode);
+        battery.setPostcode(postcode);
+        battery.setCapacity(10000);
+        return battery;
+    }
+}
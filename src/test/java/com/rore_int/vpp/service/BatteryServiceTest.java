@@ -1,25 +1,45 @@
 package com.rore_int.vpp.service;
 
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.BatteryNameCapacity;
+import com.rore_int.vpp.dto.BatteryNameId;
+import com.rore_int.vpp.dto.BatteryNamePage;
 import com.rore_int.vpp.dto.BatterySearchResponse;
+import com.rore_int.vpp.dto.BatteryStatisticsResponse;
+import com.rore_int.vpp.dto.PostcodeStatistics;
 import com.rore_int.vpp.entity.Battery;
 import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.exception.OverloadedException;
 import com.rore_int.vpp.exception.ValidationException;
+import com.rore_int.vpp.logging.LogSampler;
+import com.rore_int.vpp.metrics.BatteryMetrics;
 import com.rore_int.vpp.repository.BatteryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -35,6 +55,39 @@ public class BatteryServiceTest {
     @Mock
     private Executor taskExecutor;
 
+    @Mock
+    private PostcodeCapacityIndex postcodeCapacityIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BatteryWriteCoalescer batteryWriteCoalescer;
+
+    @Mock
+    private IdempotentBatteryWriter idempotentBatteryWriter;
+
+    @Mock
+    private PostcodeCapacitySummary postcodeCapacitySummary;
+
+    @Mock
+    private ChunkedBatteryWriter chunkedBatteryWriter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private BatteryMetrics batteryMetrics = new BatteryMetrics(new SimpleMeterRegistry());
+
+    @Spy
+    private LogSampler logSampler = new LogSampler(1, Duration.ofSeconds(1));
+
+    @Spy
+    private BatterySearchCache batterySearchCache = new BatterySearchCache(true, 1000, Duration.ofMinutes(1));
+
+    @Spy
+    private AdmissionLimiter admissionLimiter = AdmissionLimiterTest.limiter();
+
     @InjectMocks
     private BatteryService batteryService;
 
@@ -83,6 +136,73 @@ public class BatteryServiceTest {
         assertEquals("Cannington", savedBatteries.get(0).getName());
         assertEquals("Midland", savedBatteries.get(1).getName());
         verify(batteryRepository, times(1)).saveAll(batteries);
+        verify(eventPublisher, times(1)).publishEvent(new BatteriesSavedEvent(batteries));
+    }
+
+    @Test
+    void createBatteries_shouldPublishCopyOfSavedBatteries() throws Exception {
+        doAnswer(invocation -> {
+            Runnable task = invocation.getArgument(0);
+            task.run();
+            return null;
+        }).when(taskExecutor).execute(any(Runnable.class));
+        when(batteryRepository.saveAll(anyList())).thenReturn(new ArrayList<>(batteries));
+
+        List<Battery> savedBatteries = batteryService.createBatteries(batteries).get();
+        savedBatteries.clear();
+
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(batteries, ((BatteriesSavedEvent) event.getValue()).getBatteries());
+    }
+
+    @Test
+    void createBatteries_shouldDelegateToCoalescerWhenEnabled() {
+        CompletableFuture<List<Battery>> coalesced = CompletableFuture.completedFuture(batteries);
+        when(batteryWriteCoalescer.isEnabled()).thenReturn(true);
+        when(batteryWriteCoalescer.submit(batteries)).thenReturn(coalesced);
+
+        assertSame(batteries, batteryService.createBatteries(batteries).join());
+        verify(batteryRepository, never()).saveAll(anyList());
+        verify(taskExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    void createBatteries_shouldWriteKeyedRequestsInOwnTransactionAndPublishInserted() throws Exception {
+        doAnswer(invocation -> {
+            Runnable task = invocation.getArgument(0);
+            task.run();
+            return null;
+        }).when(taskExecutor).execute(any(Runnable.class));
+        when(idempotentBatteryWriter.write("key-1", batteries))
+                .thenReturn(new IdempotentBatteryWriter.WriteResult(batteries, batteries, false));
+
+        assertEquals(batteries, batteryService.createBatteries(batteries, "key-1").get());
+        verify(batteryWriteCoalescer, never()).submit(anyList());
+        verify(eventPublisher, times(1)).publishEvent(new BatteriesSavedEvent(batteries));
+    }
+
+    @Test
+    void createBatteries_shouldNotPublishEventForReplayedRequest() throws Exception {
+        doAnswer(invocation -> {
+            Runnable task = invocation.getArgument(0);
+            task.run();
+            return null;
+        }).when(taskExecutor).execute(any(Runnable.class));
+        when(idempotentBatteryWriter.write("key-1", batteries))
+                .thenReturn(new IdempotentBatteryWriter.WriteResult(batteries, List.of(), true));
+
+        assertEquals(batteries, batteryService.createBatteries(batteries, "key-1").get());
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(batteryMetrics, times(1)).recordReplay();
+    }
+
+    @Test
+    void createBatteries_shouldRejectOverlongIdempotencyKey() {
+        ValidationException thrown = assertThrows(ValidationException.class,
+                () -> batteryService.createBatteries(batteries, "k".repeat(256)));
+        assertEquals("Idempotency-Key must be between 1 and 255 characters", thrown.getMessage());
+        verifyNoInteractions(idempotentBatteryWriter);
     }
 
     @Test
@@ -92,6 +212,43 @@ public class BatteryServiceTest {
         verify(batteryRepository, never()).saveAll(anyList());
     }
 
+    @Test
+    void createBatteries_shouldThrowOverloadedExceptionWhenExecutorRejects() {
+        doThrow(new RejectedExecutionException("queue full")).when(taskExecutor).execute(any(Runnable.class));
+
+        OverloadedException thrown = assertThrows(OverloadedException.class,
+                () -> batteryService.createBatteries(batteries));
+
+        assertEquals(1, thrown.getRetryAfterSeconds());
+        assertEquals(0, admissionLimiter.getInFlight());
+        verify(batteryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createBatteries_shouldFailWithOverloadedExceptionWhenCoalescedWriteIsRejected() {
+        when(batteryWriteCoalescer.isEnabled()).thenReturn(true);
+        when(batteryWriteCoalescer.submit(batteries))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("queue full")));
+
+        CompletableFuture<List<Battery>> future = batteryService.createBatteries(batteries);
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(OverloadedException.class, thrown.getCause());
+        assertEquals(0, admissionLimiter.getInFlight());
+    }
+
+    @Test
+    void createBatteries_shouldShedRequestsOverTheAdmissionLimit() {
+        when(batteryWriteCoalescer.isEnabled()).thenReturn(true);
+        when(batteryWriteCoalescer.submit(batteries)).thenReturn(new CompletableFuture<>());
+        for (int i = 0; i < admissionLimiter.getLimit(); i++) {
+            batteryService.createBatteries(batteries);
+        }
+
+        assertThrows(OverloadedException.class, () -> batteryService.createBatteries(batteries));
+        verify(batteryWriteCoalescer, times(admissionLimiter.getLimit())).submit(batteries);
+    }
+
     @Test
     void createBatteries_shouldThrowDatabaseExceptionOnDataAccessError() throws Exception {
         // Stub taskExecutor to run tasks synchronously
@@ -113,8 +270,10 @@ public class BatteryServiceTest {
 
     @Test
     void searchBatteriesByPostcodeRange_shouldReturnSortedNamesAndStatsWithCapacityFilters() {
-        when(batteryRepository.findByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
-                .thenReturn(batteries);
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
+                .thenReturn(new BatteryCapacityStats(2L, 64000L, 32000.0));
+        when(batteryRepository.findNamesByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
+                .thenReturn(Arrays.asList("Cannington", "Midland"));
 
         BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange(
                 minPostcode, maxPostcode, minCapacity, maxCapacity);
@@ -123,13 +282,17 @@ public class BatteryServiceTest {
         assertEquals(Arrays.asList("Cannington", "Midland"), response.getBatteryNames());
         assertEquals(64000, response.getTotalCapacity());
         assertEquals(32000.0, response.getAverageCapacity(), 0.01);
-        verify(batteryRepository, times(1)).findByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        verify(batteryRepository, times(1)).findNamesByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        verify(batteryRepository, never()).findAll();
+        // Totals and names come from one read-only snapshot
+        verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition.isReadOnly()
+                && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_REPEATABLE_READ));
     }
 
     @Test
     void searchBatteriesByPostcodeRange_shouldReturnEmptyWhenNoBatteriesFound() {
-        when(batteryRepository.findByPostcodeRangeAndCapacity("7000", "7200", null, null))
-                .thenReturn(Collections.emptyList());
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity("7000", "7200", null, null))
+                .thenReturn(new BatteryCapacityStats(0L, null, null));
 
         BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange("7000", "7200", null, null);
 
@@ -137,14 +300,15 @@ public class BatteryServiceTest {
         assertTrue(response.getBatteryNames().isEmpty());
         assertEquals(0, response.getTotalCapacity());
         assertEquals(0.0, response.getAverageCapacity(), 0.01);
-        verify(batteryRepository, times(1)).findByPostcodeRangeAndCapacity("7000", "7200", null, null);
+        verify(batteryRepository, never()).findNamesByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any());
     }
 
     @Test
     void searchBatteriesByPostcodeRange_shouldFilterByMinCapacityOnly() {
-        List<Battery> filteredBatteries = Arrays.asList(batteries.get(1)); // Only Midland (50500)
-        when(batteryRepository.findByPostcodeRangeAndCapacity(minPostcode, maxPostcode, 50000, null))
-                .thenReturn(filteredBatteries);
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, 50000, null))
+                .thenReturn(new BatteryCapacityStats(1L, 50500L, 50500.0));
+        when(batteryRepository.findNamesByPostcodeRangeAndCapacity(minPostcode, maxPostcode, 50000, null))
+                .thenReturn(Arrays.asList("Midland"));
 
         BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, 50000, null);
 
@@ -152,14 +316,15 @@ public class BatteryServiceTest {
         assertEquals(Arrays.asList("Midland"), response.getBatteryNames());
         assertEquals(50500, response.getTotalCapacity());
         assertEquals(50500.0, response.getAverageCapacity(), 0.01);
-        verify(batteryRepository, times(1)).findByPostcodeRangeAndCapacity(minPostcode, maxPostcode, 50000, null);
+        verify(batteryRepository, times(1)).findNamesByPostcodeRangeAndCapacity(minPostcode, maxPostcode, 50000, null);
     }
 
     @Test
     void searchBatteriesByPostcodeRange_shouldFilterByMaxCapacityOnly() {
-        List<Battery> filteredBatteries = Arrays.asList(batteries.get(0)); // Only Cannington (13500)
-        when(batteryRepository.findByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, 20000))
-                .thenReturn(filteredBatteries);
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, 20000))
+                .thenReturn(new BatteryCapacityStats(1L, 13500L, 13500.0));
+        when(batteryRepository.findNamesByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, 20000))
+                .thenReturn(Arrays.asList("Cannington"));
 
         BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, null, 20000);
 
@@ -167,7 +332,235 @@ public class BatteryServiceTest {
         assertEquals(Arrays.asList("Cannington"), response.getBatteryNames());
         assertEquals(13500, response.getTotalCapacity());
         assertEquals(13500.0, response.getAverageCapacity(), 0.01);
-        verify(batteryRepository, times(1)).findByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, 20000);
+        verify(batteryRepository, times(1)).findNamesByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, 20000);
+    }
+
+    @Test
+    void searchBatteriesByPostcodeRange_shouldSkipNamesWhenOnlyAggregatesRequested() {
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, null))
+                .thenReturn(new BatteryCapacityStats(2L, 64000L, 32000.0));
+
+        BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange(
+                minPostcode, maxPostcode, null, null, false);
+
+        assertNull(response.getBatteryNames());
+        assertEquals(64000, response.getTotalCapacity());
+        assertEquals(32000.0, response.getAverageCapacity(), 0.01);
+        verify(batteryRepository, never()).findNamesByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void searchBatteriesByPostcodeRange_shouldUseIndexForUnfilteredTotals() {
+        when(postcodeCapacityIndex.isReady()).thenReturn(true);
+        when(postcodeCapacityIndex.stats(minPostcode, maxPostcode)).thenReturn(new BatteryCapacityStats(2L, 64000L, 32000.0));
+
+        BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange(
+                minPostcode, maxPostcode, null, null, false);
+
+        assertEquals(64000, response.getTotalCapacity());
+        assertEquals(32000.0, response.getAverageCapacity(), 0.01);
+        verifyNoInteractions(batteryRepository);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void searchBatteriesByPostcodeRange_shouldUseDatabaseWhenCapacityFiltered() {
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, null))
+                .thenReturn(new BatteryCapacityStats(2L, 64000L, 32000.0));
+
+        batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, minCapacity, null, false);
+
+        verify(postcodeCapacityIndex, never()).stats(anyString(), anyString());
+        verify(batteryRepository, times(1)).aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, null);
+    }
+
+    @Test
+    void searchBatteriesByPostcodeRange_shouldReadUnfilteredTotalsFromSummaryTable() {
+        when(postcodeCapacitySummary.isEnabled()).thenReturn(true);
+        when(postcodeCapacitySummary.stats(minPostcode, maxPostcode)).thenReturn(new BatteryCapacityStats(2L, 64000L, 32000.0));
+
+        BatterySearchResponse response = batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, null, null, false);
+
+        assertEquals(64000, response.getTotalCapacity());
+        assertEquals(32000.0, response.getAverageCapacity(), 0.01);
+        verify(batteryRepository, never()).aggregateByPostcodeRangeAndCapacity(any(), any(), any(), any());
+    }
+
+    @Test
+    void searchBatteriesByPostcodeRange_shouldServeRepeatedSearchesFromCache() {
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
+                .thenReturn(new BatteryCapacityStats(2L, 64000L, 32000.0));
+        when(batteryRepository.findNamesByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
+                .thenReturn(Arrays.asList("Cannington", "Midland"));
+
+        BatterySearchResponse first = batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        BatterySearchResponse second = batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, minCapacity, maxCapacity);
+
+        assertSame(first, second);
+        verify(batteryRepository, times(1)).aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        assertEquals(1, batteryService.getSearchCacheStats().getHits());
+        assertEquals(1, batteryService.getSearchCacheStats().getMisses());
+    }
+
+    @Test
+    void searchBatteriesByPostcodeRange_shouldRecordLatencyDatabaseTimeAndRows() {
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
+                .thenReturn(new BatteryCapacityStats(2L, 64000L, 32000.0));
+        when(batteryRepository.findNamesByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
+                .thenReturn(List.of("Cannington", "Midland"));
+
+        batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, minCapacity, maxCapacity);
+
+        // The second search is a cache hit, so only the first one reaches the database
+        verify(batteryMetrics, times(2)).recordSearch(any(), eq(BatteryMetrics.SearchType.NAMES), eq(2));
+        verify(batteryMetrics, times(1)).recordSearchQueries(any(), eq(BatteryMetrics.SearchType.NAMES));
+    }
+
+    @Test
+    void streamBatteriesByPostcodeRange_shouldEmitNamesAndAccumulateTotals() {
+        when(batteryRepository.streamByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, null))
+                .thenReturn(Stream.of(new BatteryNameCapacity("Cannington", 13500), new BatteryNameCapacity("Midland", 50500)));
+        List<String> names = new ArrayList<>();
+
+        BatteryCapacityStats stats = batteryService.streamBatteriesByPostcodeRange(
+                minPostcode, maxPostcode, null, null, names::add);
+
+        assertEquals(Arrays.asList("Cannington", "Midland"), names);
+        assertEquals(2, stats.getCount());
+        assertEquals(64000, stats.getTotalCapacity());
+        assertEquals(32000.0, stats.getAverageCapacity(), 0.01);
+    }
+
+    @Test
+    void streamBatteriesByPostcodeRange_shouldAverageOnlyBatteriesWithACapacity() {
+        when(batteryRepository.streamByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, null))
+                .thenReturn(Stream.of(new BatteryNameCapacity("Cannington", 13500), new BatteryNameCapacity("Kelmscott", null),
+                        new BatteryNameCapacity("Midland", 50500)));
+        List<String> names = new ArrayList<>();
+
+        BatteryCapacityStats stats = batteryService.streamBatteriesByPostcodeRange(
+                minPostcode, maxPostcode, null, null, names::add);
+
+        assertEquals(Arrays.asList("Cannington", "Kelmscott", "Midland"), names);
+        assertEquals(3, stats.getCount());
+        assertEquals(64000, stats.getTotalCapacity());
+        assertEquals(32000.0, stats.getAverageCapacity(), 0.01);
+    }
+
+    @Test
+    void getStatisticsByPostcode_shouldReturnOneBucketPerPostcodeByDefault() {
+        PostcodeStatistics midland = new PostcodeStatistics("6057", 2L, 60000L, 2L, 20000, 40000, 20000);
+        when(batteryRepository.streamStatisticsByPostcode(minPostcode, maxPostcode, null, null))
+                .thenReturn(Stream.of(midland));
+
+        BatteryStatisticsResponse response = batteryService.getStatisticsByPostcode(minPostcode, maxPostcode, null, null, 4);
+
+        assertEquals(4, response.getPrefixLength());
+        assertEquals(List.of(midland), response.getBuckets());
+        assertEquals(30000.0, midland.getAverageCapacity(), 0.01);
+    }
+
+    @Test
+    void getStatisticsByPostcode_shouldFoldPostcodesIntoPrefixBuckets() {
+        when(batteryRepository.streamStatisticsByPostcode(minPostcode, maxPostcode, minCapacity, maxCapacity))
+                .thenReturn(Stream.of(
+                        new PostcodeStatistics("6057", 1L, 50500L, 1L, 50500, 50500, 50500),
+                        new PostcodeStatistics("6061", 3L, 45000L, 3L, 10000, 20000, 15000),
+                        new PostcodeStatistics("6107", 2L, 27000L, 2L, 13000, 14000, 13000)));
+
+        BatteryStatisticsResponse response = batteryService.getStatisticsByPostcode(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, 2);
+
+        assertEquals(2, response.getBuckets().size());
+        PostcodeStatistics sixty = response.getBuckets().get(0);
+        assertEquals("60", sixty.getPostcode());
+        assertEquals(4, sixty.getCount());
+        assertEquals(95500, sixty.getTotalCapacity());
+        assertEquals(10000, sixty.getMinCapacity());
+        assertEquals(50500, sixty.getMaxCapacity());
+        assertEquals(23875.0, sixty.getAverageCapacity(), 0.01);
+        // Weighted by count: three batteries around 15000 outweigh the single 50500
+        assertEquals(15000, sixty.getMedianCapacity());
+        assertEquals(new PostcodeStatistics("61", 2L, 27000L, 2L, 13000, 14000, 13000), response.getBuckets().get(1));
+    }
+
+    @Test
+    void getStatisticsByPostcode_shouldAverageBucketsOverBatteriesWithACapacity() {
+        // 6057 has three batteries, one of them without a capacity
+        when(batteryRepository.streamStatisticsByPostcode(minPostcode, maxPostcode, null, null))
+                .thenReturn(Stream.of(
+                        new PostcodeStatistics("6057", 3L, 60000L, 2L, 20000, 40000, 20000),
+                        new PostcodeStatistics("6061", 1L, 30000L, 1L, 30000, 30000, 30000)));
+
+        BatteryStatisticsResponse response = batteryService.getStatisticsByPostcode(minPostcode, maxPostcode, null, null, 2);
+
+        PostcodeStatistics sixty = response.getBuckets().get(0);
+        assertEquals(4, sixty.getCount());
+        assertEquals(3, sixty.getCapacityCount());
+        assertEquals(30000.0, sixty.getAverageCapacity(), 0.01);
+    }
+
+    @Test
+    void getStatisticsByPostcode_shouldReadSummaryTableWhenMedianIsNotRequested() {
+        when(postcodeCapacitySummary.isEnabled()).thenReturn(true);
+        when(postcodeCapacitySummary.statistics(minPostcode, maxPostcode)).thenReturn(List.of(
+                new PostcodeStatistics("6057", 1L, 50500L, 1L, 50500, 50500),
+                new PostcodeStatistics("6107", 2L, 27000L, 2L, 13000, 14000)));
+
+        BatteryStatisticsResponse response = batteryService.getStatisticsByPostcode(
+                minPostcode, maxPostcode, null, null, 1, false);
+
+        assertEquals(List.of(new PostcodeStatistics("6", 3L, 77500L, 3L, 13000, 50500)), response.getBuckets());
+        assertNull(response.getBuckets().get(0).getMedianCapacity());
+        verifyNoInteractions(batteryRepository);
+    }
+
+    @Test
+    void getStatisticsByPostcode_shouldRejectInvalidPrefixLength() {
+        assertThrows(ValidationException.class,
+                () -> batteryService.getStatisticsByPostcode(minPostcode, maxPostcode, null, null, 0));
+        assertThrows(ValidationException.class,
+                () -> batteryService.getStatisticsByPostcode(minPostcode, maxPostcode, null, null, 5));
+        verifyNoInteractions(batteryRepository);
+    }
+
+    @Test
+    void searchBatteryNamePage_shouldReturnCursorWhenMorePagesFollow() {
+        when(batteryRepository.findFirstPageByPostcodeRangeAndCapacity(minPostcode, maxPostcode, null, null, Limit.of(3)))
+                .thenReturn(List.of(new BatteryNameId("Cannington", 7L), new BatteryNameId("Midland", 3L),
+                        new BatteryNameId("Perth", 9L)));
+
+        BatteryNamePage page = batteryService.searchBatteryNamePage(minPostcode, maxPostcode, null, null, 2, null);
+
+        assertEquals(List.of("Cannington", "Midland"), page.getBatteryNames());
+        assertEquals(new BatteryNameId("Midland", 3L), BatteryService.decodeCursor(page.getNextCursor()));
+    }
+
+    @Test
+    void searchBatteryNamePage_shouldSeekPastCursorAndEndOnLastPage() {
+        String cursor = BatteryService.encodeCursor(new BatteryNameId("Midland: East", 3L));
+        when(batteryRepository.findPageAfterByPostcodeRangeAndCapacity(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, "Midland: East", 3L, Limit.of(3)))
+                .thenReturn(List.of(new BatteryNameId("Perth", 9L)));
+
+        BatteryNamePage page = batteryService.searchBatteryNamePage(
+                minPostcode, maxPostcode, minCapacity, maxCapacity, 2, cursor);
+
+        assertEquals(List.of("Perth"), page.getBatteryNames());
+        assertNull(page.getNextCursor());
+        verify(batteryRepository, never()).findFirstPageByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void searchBatteryNamePage_shouldRejectInvalidCursorAndPageSize() {
+        ValidationException badCursor = assertThrows(ValidationException.class,
+                () -> batteryService.searchBatteryNamePage(minPostcode, maxPostcode, null, null, 10, "not-a-cursor"));
+        assertEquals("Invalid cursor", badCursor.getMessage());
+
+        ValidationException badPageSize = assertThrows(ValidationException.class,
+                () -> batteryService.searchBatteryNamePage(minPostcode, maxPostcode, null, null, 0, null));
+        assertEquals("pageSize must be between 1 and " + BatteryService.MAX_PAGE_SIZE, badPageSize.getMessage());
     }
 
     @Test
@@ -175,7 +568,7 @@ public class BatteryServiceTest {
         assertThrows(ValidationException.class,
                 () -> batteryService.searchBatteriesByPostcodeRange("123", maxPostcode, minCapacity, maxCapacity),
                 "minPostcode must be a 4-digit number");
-        verify(batteryRepository, never()).findByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any());
+        verify(batteryRepository, never()).aggregateByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any());
     }
 
     @Test
@@ -183,7 +576,7 @@ public class BatteryServiceTest {
         assertThrows(ValidationException.class,
                 () -> batteryService.searchBatteriesByPostcodeRange(minPostcode, "123", minCapacity, maxCapacity),
                 "maxPostcode must be a 4-digit number");
-        verify(batteryRepository, never()).findByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any());
+        verify(batteryRepository, never()).aggregateByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any());
     }
 
     @Test
@@ -191,18 +584,18 @@ public class BatteryServiceTest {
         assertThrows(ValidationException.class,
                 () -> batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, -1, maxCapacity),
                 "minCapacity must be positive");
-        verify(batteryRepository, never()).findByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any());
+        verify(batteryRepository, never()).aggregateByPostcodeRangeAndCapacity(anyString(), anyString(), any(), any());
     }
 
     @Test
     void searchBatteriesByPostcodeRange_shouldThrowDatabaseExceptionOnDataAccessError() {
-        when(batteryRepository.findByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
+        when(batteryRepository.aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity))
                 .thenThrow(new EmptyResultDataAccessException(1));
 
         DatabaseException thrown = assertThrows(DatabaseException.class,
                 () -> batteryService.searchBatteriesByPostcodeRange(minPostcode, maxPostcode, minCapacity, maxCapacity));
         assertEquals("Failed to search batteries", thrown.getMessage());
         assertInstanceOf(EmptyResultDataAccessException.class, thrown.getCause());
-        verify(batteryRepository, times(1)).findByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity);
+        verify(batteryRepository, times(1)).aggregateByPostcodeRangeAndCapacity(minPostcode, maxPostcode, minCapacity, maxCapacity);
     }
 }
\ No newline at end of file
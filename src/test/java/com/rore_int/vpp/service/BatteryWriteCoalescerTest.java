@@ -0,0 +1,134 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.repository.BatteryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatteryWriteCoalescerTest {
+
+    private static final Executor DIRECT = Runnable::run;
+    private static final AtomicLong ids = new AtomicLong();
+
+    @Mock
+    private BatteryRepository batteryRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void submit_shouldCoalesceRequestsWithinWindowIntoOneSave() throws Exception {
+        List<Integer> saveSizes = Collections.synchronizedList(new ArrayList<>());
+        when(batteryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Battery> batteries = invocation.getArgument(0);
+            saveSizes.add(batteries.size());
+            return assignIds(batteries);
+        });
+        BatteryWriteCoalescer coalescer = new BatteryWriteCoalescer(batteryRepository, DIRECT, eventPublisher,
+                true, Duration.ofMillis(200), 100);
+
+        CompletableFuture<List<Battery>> first = coalescer.submit(List.of(battery("A-1"), battery("A-2")));
+        CompletableFuture<List<Battery>> second = coalescer.submit(List.of(battery("B-1")));
+
+        assertEquals(List.of("A-1", "A-2"), names(first.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of("B-1"), names(second.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of(3), saveSizes);
+        verify(eventPublisher, times(1)).publishEvent(any(BatteriesSavedEvent.class));
+    }
+
+    @Test
+    void submit_shouldFlushImmediatelyWhenMaxBatchSizeReached() throws Exception {
+        when(batteryRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        // A window this long would time the test out if the size threshold did not trigger the flush
+        BatteryWriteCoalescer coalescer = new BatteryWriteCoalescer(batteryRepository, DIRECT, eventPublisher,
+                true, Duration.ofHours(1), 3);
+
+        CompletableFuture<List<Battery>> first = coalescer.submit(List.of(battery("A-1"), battery("A-2")));
+        assertFalse(first.isDone());
+        CompletableFuture<List<Battery>> second = coalescer.submit(List.of(battery("B-1")));
+
+        assertEquals(List.of("A-1", "A-2"), names(first.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of("B-1"), names(second.get(5, TimeUnit.SECONDS)));
+        verify(batteryRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void submit_shouldIsolateFailingRequestWhenCombinedSaveFails() throws Exception {
+        when(batteryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Battery> batteries = invocation.getArgument(0);
+            assignIds(batteries);
+            if (batteries.stream().anyMatch(battery -> battery.getName().equals("Bad"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return batteries;
+        });
+        BatteryWriteCoalescer coalescer = new BatteryWriteCoalescer(batteryRepository, DIRECT, eventPublisher,
+                true, Duration.ofHours(1), 3);
+        Battery good = battery("Good");
+
+        CompletableFuture<List<Battery>> goodWrite = coalescer.submit(List.of(good));
+        CompletableFuture<List<Battery>> badWrite = coalescer.submit(List.of(battery("Bad"), battery("Other")));
+
+        assertEquals(List.of("Good"), names(goodWrite.get(5, TimeUnit.SECONDS)));
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> badWrite.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DatabaseException.class, thrown.getCause());
+        assertEquals("Failed to save batteries", thrown.getCause().getMessage());
+        // Combined attempt, then one retry per request
+        verify(batteryRepository, times(3)).saveAll(anyList());
+        verify(eventPublisher, times(1)).publishEvent(new BatteriesSavedEvent(List.of(good)));
+    }
+
+    @Test
+    void submit_shouldFailRequestsWhenExecutorRejectsBatch() {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("queue full");
+        };
+        BatteryWriteCoalescer coalescer = new BatteryWriteCoalescer(batteryRepository, rejecting, eventPublisher,
+                true, Duration.ofHours(1), 1);
+
+        CompletableFuture<List<Battery>> write = coalescer.submit(List.of(battery("A-1")));
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, write::get);
+        assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+        verify(batteryRepository, never()).saveAll(anyList());
+    }
+
+    private static List<Battery> assignIds(List<Battery> batteries) {
+        batteries.forEach(battery -> battery.setId(ids.incrementAndGet()));
+        return batteries;
+    }
+
+    private static Battery battery(String name) {
+        Battery battery = new Battery();
+        battery.setName(name);
+        battery.setPostcode("6000");
+        battery.setCapacity(10000);
+        return battery;
+    }
+
+    private static List<String> names(List<Battery> batteries) {
+        return batteries.stream().map(Battery::getName).toList();
+    }
+}
@@ -0,0 +1,219 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.BatteryChunkedCreateResponse;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.DatabaseException;
+import com.rore_int.vpp.repository.BatteryRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChunkedBatteryWriterTest {
+
+    private static final AtomicLong ids = new AtomicLong();
+
+    @Mock
+    private BatteryRepository batteryRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldChunk_shouldOnlySplitRequestsAboveTheThreshold() {
+        ChunkedBatteryWriter writer = writer(executor::execute, 2, 3);
+
+        assertFalse(writer.shouldChunk(10));
+        assertTrue(writer.shouldChunk(11));
+        assertFalse(new ChunkedBatteryWriter(batteryRepository, entityManager, executor, eventPublisher,
+                transactionManager, 10, 200, 1).shouldChunk(100));
+    }
+
+    @Test
+    void writeAtomic_shouldWriteEveryChunkInOneTransactionAndKeepRequestOrder() {
+        when(batteryRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        List<Battery> batteries = batteries(10);
+
+        List<Battery> saved = writer(executor::execute, 2, 3).writeAtomic(batteries);
+
+        assertEquals(names(batteries), names(saved));
+        assertTrue(saved.stream().allMatch(battery -> battery.getId() != null));
+        verify(batteryRepository, times(5)).saveAllAndFlush(anyList());
+        // Each flushed chunk is detached before the next one is written
+        verify(entityManager, times(5)).clear();
+        assertEquals(1, transactionManager.begun.get());
+        assertEquals(1, transactionManager.commits.get());
+        verify(eventPublisher, times(1)).publishEvent(new BatteriesSavedEvent(saved));
+    }
+
+    @Test
+    void writeAtomic_shouldRollBackTheWholeRequestWhenOneChunkFails() {
+        when(batteryRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<Battery> chunk = invocation.getArgument(0);
+            if (names(chunk).contains("Battery-9")) {
+                throw new DataIntegrityViolationException("capacity out of range");
+            }
+            return assignIds(chunk);
+        });
+
+        DatabaseException thrown = assertThrows(DatabaseException.class,
+                () -> writer(executor::execute, 2, 3).writeAtomic(batteries(10)));
+
+        assertInstanceOf(DataIntegrityViolationException.class, thrown.getCause());
+        assertEquals(0, transactionManager.commits.get());
+        assertEquals(1, transactionManager.rollbacks.get());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void writeAtomic_shouldReportAFailedCommitAsADatabaseError() {
+        when(batteryRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        transactionManager.failingCommits.set(1);
+
+        DatabaseException thrown = assertThrows(DatabaseException.class,
+                () -> writer(executor::execute, 2, 3).writeAtomic(batteries(10)));
+
+        assertInstanceOf(TransactionSystemException.class, thrown.getCause());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void writeChunks_shouldKeepCommittedChunksAndReportFailedOnes() {
+        when(batteryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Battery> chunk = invocation.getArgument(0);
+            if (names(chunk).contains("Battery-3")) {
+                throw new DataIntegrityViolationException("capacity out of range");
+            }
+            return assignIds(chunk);
+        });
+
+        BatteryChunkedCreateResponse response = writer(executor::execute, 2, 3).writeChunks(batteries(10));
+
+        assertEquals(8, response.getCommitted());
+        assertEquals(2, response.getFailed());
+        assertEquals(5, response.getChunks().size());
+        BatteryChunkedCreateResponse.ChunkOutcome failed = response.getChunks().get(1);
+        assertFalse(failed.isCommitted());
+        assertEquals(2, failed.getOffset());
+        assertEquals("Failed to save batteries", failed.getError());
+        assertTrue(response.getChunks().stream().filter(chunk -> chunk.getIndex() != 1)
+                .allMatch(BatteryChunkedCreateResponse.ChunkOutcome::isCommitted));
+        assertEquals(List.of("Battery-0", "Battery-1", "Battery-4", "Battery-5", "Battery-6", "Battery-7",
+                "Battery-8", "Battery-9"), names(response.getBatteries()));
+        verify(eventPublisher, times(4)).publishEvent(any(BatteriesSavedEvent.class));
+    }
+
+    @Test
+    void writeChunks_shouldReportChunksThatFailOutsideTheDataAccessLayer() {
+        when(batteryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Battery> chunk = invocation.getArgument(0);
+            if (names(chunk).contains("Battery-3")) {
+                throw new CannotCreateTransactionException("Connection is not available, request timed out");
+            }
+            return assignIds(chunk);
+        });
+        doThrow(new IllegalStateException("listener failed")).when(eventPublisher)
+                .publishEvent(argThat((Object event) -> event instanceof BatteriesSavedEvent saved
+                        && names(saved.getBatteries()).contains("Battery-5")));
+
+        BatteryChunkedCreateResponse response = writer(executor::execute, 2, 3).writeChunks(batteries(10));
+
+        assertEquals(5, response.getChunks().size());
+        assertEquals(8, response.getCommitted());
+        assertEquals(2, response.getFailed());
+        assertFalse(response.getChunks().get(1).isCommitted());
+        assertEquals("Failed to save batteries", response.getChunks().get(1).getError());
+        // The chunk whose listener failed was committed all the same
+        assertTrue(response.getChunks().get(2).isCommitted());
+    }
+
+    private ChunkedBatteryWriter writer(Executor taskExecutor, int chunkSize, int parallelism) {
+        return new ChunkedBatteryWriter(batteryRepository, entityManager, taskExecutor, eventPublisher,
+                transactionManager, 10, chunkSize, parallelism);
+    }
+
+    private static List<Battery> batteries(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Battery battery = new Battery();
+            battery.setName("Battery-" + i);
+            battery.setPostcode("6000");
+            battery.setCapacity(1000);
+            return battery;
+        }).toList();
+    }
+
+    private static List<Battery> assignIds(List<Battery> batteries) {
+        batteries.forEach(battery -> battery.setId(ids.incrementAndGet()));
+        return new ArrayList<>(batteries);
+    }
+
+    private static List<String> names(List<Battery> batteries) {
+        return batteries.stream().map(Battery::getName).toList();
+    }
+
+    // Commits unless the transaction was marked rollback-only; the first failingCommits commits throw
+    private static final class RecordingTransactionManager implements PlatformTransactionManager {
+        private final AtomicInteger begun = new AtomicInteger();
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger rollbacks = new AtomicInteger();
+        private final AtomicInteger failingCommits = new AtomicInteger();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            begun.incrementAndGet();
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            if (status.isRollbackOnly()) {
+                rollbacks.incrementAndGet();
+            } else if (failingCommits.getAndDecrement() > 0) {
+                throw new TransactionSystemException("commit failed");
+            } else {
+                commits.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbacks.incrementAndGet();
+        }
+    }
+}
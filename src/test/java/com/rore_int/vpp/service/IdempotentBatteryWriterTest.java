@@ -0,0 +1,152 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.exception.IdempotencyKeyMismatchException;
+import com.rore_int.vpp.repository.BatteryRepository;
+import com.rore_int.vpp.repository.BatteryRequestRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotentBatteryWriterTest {
+
+    @Mock
+    private BatteryRepository batteryRepository;
+
+    @Mock
+    private BatteryRequestRepository batteryRequestRepository;
+
+    @Test
+    void write_shouldSaveAndRecordIdsForNewKey() {
+        List<Battery> batteries = List.of(battery(1L, "Cannington"), battery(2L, "Midland"));
+        when(batteryRequestRepository.claim("key-1", IdempotentBatteryWriter.hash(batteries))).thenReturn(true);
+        when(batteryRepository.saveAll(batteries)).thenReturn(batteries);
+        IdempotentBatteryWriter writer = writer(false);
+
+        IdempotentBatteryWriter.WriteResult result = writer.write("key-1", batteries);
+
+        assertFalse(result.replayed());
+        assertEquals(batteries, result.batteries());
+        assertEquals(batteries, result.inserted());
+        verify(batteryRequestRepository).complete("key-1", List.of(1L, 2L));
+    }
+
+    @Test
+    void write_shouldReplayCommittedKeyInOriginalOrderWithoutWriting() {
+        Battery first = battery(7L, "Cannington");
+        Battery second = battery(3L, "Midland");
+        List<Battery> retry = List.of(battery(null, "Cannington"), battery(null, "Midland"));
+        byte[] requestHash = IdempotentBatteryWriter.hash(retry);
+        when(batteryRequestRepository.claim("key-1", requestHash)).thenReturn(false);
+        when(batteryRequestRepository.findRequest("key-1")).thenReturn(Optional.of(
+                new BatteryRequestRepository.StoredRequest(List.of(7L, 3L), requestHash)));
+        when(batteryRepository.findAllById(List.of(7L, 3L))).thenReturn(List.of(second, first));
+        IdempotentBatteryWriter writer = writer(false);
+
+        IdempotentBatteryWriter.WriteResult result = writer.write("key-1", retry);
+
+        assertTrue(result.replayed());
+        assertEquals(List.of(first, second), result.batteries());
+        assertTrue(result.inserted().isEmpty());
+        verify(batteryRepository, never()).saveAll(anyList());
+        verify(batteryRequestRepository, never()).complete(any(), anyList());
+    }
+
+    @Test
+    void write_shouldRejectKeyReusedForDifferentBatteries() {
+        byte[] originalHash = IdempotentBatteryWriter.hash(List.of(battery(null, "Cannington")));
+        List<Battery> changed = List.of(battery(null, "Midland"));
+        when(batteryRequestRepository.claim(eq("key-1"), any())).thenReturn(false);
+        when(batteryRequestRepository.findRequest("key-1")).thenReturn(Optional.of(
+                new BatteryRequestRepository.StoredRequest(List.of(7L), originalHash)));
+        IdempotentBatteryWriter writer = writer(false);
+
+        assertThrows(IdempotencyKeyMismatchException.class, () -> writer.write("key-1", changed));
+        verify(batteryRepository, never()).findAllById(any());
+        verify(batteryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void write_shouldReplayKeyStoredWithoutHash() {
+        Battery first = battery(7L, "Cannington");
+        when(batteryRequestRepository.claim(eq("key-1"), any())).thenReturn(false);
+        when(batteryRequestRepository.findRequest("key-1")).thenReturn(Optional.of(
+                new BatteryRequestRepository.StoredRequest(List.of(7L), null)));
+        when(batteryRepository.findAllById(List.of(7L))).thenReturn(List.of(first));
+        IdempotentBatteryWriter writer = writer(false);
+
+        IdempotentBatteryWriter.WriteResult result = writer.write("key-1", List.of(battery(null, "Other")));
+
+        assertTrue(result.replayed());
+        assertEquals(List.of(first), result.batteries());
+    }
+
+    @Test
+    void hash_shouldDependOnNamePostcodeAndCapacityButNotId() {
+        byte[] original = IdempotentBatteryWriter.hash(List.of(battery(null, "Cannington")));
+        Battery otherPostcode = battery(null, "Cannington");
+        otherPostcode.setPostcode("6001");
+        Battery otherCapacity = battery(null, "Cannington");
+        otherCapacity.setCapacity(null);
+
+        assertArrayEquals(original, IdempotentBatteryWriter.hash(List.of(battery(5L, "Cannington"))));
+        assertFalse(Arrays.equals(original, IdempotentBatteryWriter.hash(List.of(battery(null, "Midland")))));
+        assertFalse(Arrays.equals(original, IdempotentBatteryWriter.hash(List.of(otherPostcode))));
+        assertFalse(Arrays.equals(original, IdempotentBatteryWriter.hash(List.of(otherCapacity))));
+        assertFalse(Arrays.equals(original, IdempotentBatteryWriter.hash(
+                List.of(battery(null, "Cannington"), battery(null, "Cannington")))));
+    }
+
+    @Test
+    void write_shouldInsertOnlyAbsentBatteriesWhenNaturalKeyEnabled() {
+        Battery existing = battery(null, "Cannington");
+        Battery added = battery(null, "Midland");
+        List<Battery> batteries = List.of(existing, added);
+        when(batteryRepository.insertIfAbsent(batteries)).thenReturn(List.of(added));
+        IdempotentBatteryWriter writer = writer(true);
+
+        IdempotentBatteryWriter.WriteResult result = writer.write(null, batteries);
+
+        assertFalse(result.replayed());
+        assertEquals(batteries, result.batteries());
+        assertEquals(List.of(added), result.inserted());
+        verify(batteryRepository, never()).saveAll(anyList());
+        verifyNoInteractions(batteryRequestRepository);
+    }
+
+    @Test
+    void purgeExpiredKeys_shouldDeleteKeysOlderThanRetention() {
+        IdempotentBatteryWriter writer = writer(false);
+
+        writer.purgeExpiredKeys();
+
+        verify(batteryRequestRepository).deleteCreatedBefore(any());
+    }
+
+    private IdempotentBatteryWriter writer(boolean naturalKeyEnabled) {
+        return new IdempotentBatteryWriter(batteryRepository, batteryRequestRepository, naturalKeyEnabled,
+                Duration.ofHours(24));
+    }
+
+    private static Battery battery(Long id, String name) {
+        Battery battery = new Battery();
+        battery.setId(id);
+        battery.setName(name);
+        battery.setPostcode("6000");
+        battery.setCapacity(10000);
+        return battery;
+    }
+}
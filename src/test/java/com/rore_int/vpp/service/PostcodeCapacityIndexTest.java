@@ -0,0 +1,141 @@
+package com.rore_int.vpp.service;
+
+import com.rore_int.vpp.dto.BatteryCapacityStats;
+import com.rore_int.vpp.dto.PostcodeCapacityTotals;
+import com.rore_int.vpp.entity.Battery;
+import com.rore_int.vpp.repository.BatteryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostcodeCapacityIndexTest {
+
+    @Mock
+    private BatteryRepository batteryRepository;
+
+    @Test
+    void afterSingletonsInstantiated_shouldLoadTotalsFromDatabase() {
+        when(batteryRepository.sumCapacityByPostcode()).thenReturn(List.of(
+                new PostcodeCapacityTotals("0000", 1L, 100L, 1L),
+                new PostcodeCapacityTotals("6057", 1L, 50500L, 1L),
+                new PostcodeCapacityTotals("6107", 2L, 27000L, 2L),
+                new PostcodeCapacityTotals("9999", 3L, 300L, 3L)));
+        PostcodeCapacityIndex index = new PostcodeCapacityIndex(batteryRepository, true);
+
+        index.afterSingletonsInstantiated();
+
+        assertTrue(index.isReady());
+        assertStats(index.stats("6000", "6200"), 3, 77500);
+        assertStats(index.stats("6100", "6200"), 2, 27000);
+        assertStats(index.stats("0000", "9999"), 7, 77900);
+        assertStats(index.stats("0000", "0000"), 1, 100);
+        assertStats(index.stats("7000", "7200"), 0, 0);
+    }
+
+    @Test
+    void record_shouldMatchBruteForceTotals() {
+        when(batteryRepository.sumCapacityByPostcode()).thenReturn(List.of());
+        PostcodeCapacityIndex index = new PostcodeCapacityIndex(batteryRepository, true);
+        index.afterSingletonsInstantiated();
+
+        Random random = new Random(42);
+        long[] counts = new long[PostcodeCapacityIndex.POSTCODES];
+        long[] capacities = new long[PostcodeCapacityIndex.POSTCODES];
+        for (int i = 0; i < 1000; i++) {
+            int postcode = random.nextInt(PostcodeCapacityIndex.POSTCODES);
+            int capacity = 1 + random.nextInt(100_000);
+            counts[postcode]++;
+            capacities[postcode] += capacity;
+            index.onBatteriesSaved(new BatteriesSavedEvent(List.of(battery(postcode, capacity))));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            int from = random.nextInt(PostcodeCapacityIndex.POSTCODES);
+            int to = from + random.nextInt(PostcodeCapacityIndex.POSTCODES - from);
+            long count = 0;
+            long total = 0;
+            for (int p = from; p <= to; p++) {
+                count += counts[p];
+                total += capacities[p];
+            }
+            assertStats(index.stats(String.format("%04d", from), String.format("%04d", to)), count, total);
+        }
+    }
+
+    @Test
+    void onBatteriesSaved_shouldCountBatteriesWithoutCapacityButNotAverageThem() {
+        when(batteryRepository.sumCapacityByPostcode()).thenReturn(List.of(
+                new PostcodeCapacityTotals("6000", 2L, 100L, 1L)));
+        PostcodeCapacityIndex index = new PostcodeCapacityIndex(batteryRepository, true);
+        index.afterSingletonsInstantiated();
+        Battery withoutCapacity = battery(6001, 0);
+        withoutCapacity.setCapacity(null);
+
+        index.onBatteriesSaved(new BatteriesSavedEvent(List.of(withoutCapacity, battery(6002, 300))));
+
+        BatteryCapacityStats stats = index.stats("6000", "6002");
+        assertEquals(4, stats.getCount());
+        assertEquals(400, stats.getTotalCapacity());
+        // Like AVG(capacity): only the two batteries with a capacity are averaged
+        assertEquals(200.0, stats.getAverageCapacity(), 0.0001);
+    }
+
+    @Test
+    @Timeout(value = 5, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void onBatteriesSaved_shouldSkipInvalidPostcodes() {
+        when(batteryRepository.sumCapacityByPostcode()).thenReturn(List.of());
+        PostcodeCapacityIndex index = new PostcodeCapacityIndex(batteryRepository, true);
+        index.afterSingletonsInstantiated();
+        Battery invalid = battery(0, 500);
+        invalid.setPostcode("60A0");
+
+        index.onBatteriesSaved(new BatteriesSavedEvent(List.of(invalid, battery(6000, 100))));
+
+        assertStats(index.stats("0000", "9999"), 1, 100);
+        assertThrows(IllegalArgumentException.class, () -> index.stats("600", "6200"));
+    }
+
+    @Test
+    void afterSingletonsInstantiated_shouldStayNotReadyWhenDisabled() {
+        PostcodeCapacityIndex index = new PostcodeCapacityIndex(batteryRepository, false);
+
+        index.afterSingletonsInstantiated();
+
+        assertFalse(index.isReady());
+        verify(batteryRepository, never()).sumCapacityByPostcode();
+    }
+
+    @Test
+    void afterSingletonsInstantiated_shouldStayNotReadyWhenDatabaseFails() {
+        when(batteryRepository.sumCapacityByPostcode()).thenThrow(new EmptyResultDataAccessException(1));
+        PostcodeCapacityIndex index = new PostcodeCapacityIndex(batteryRepository, true);
+
+        index.afterSingletonsInstantiated();
+
+        assertFalse(index.isReady());
+    }
+
+    private static Battery battery(int postcode, int capacity) {
+        Battery battery = new Battery();
+        battery.setName("Battery-" + postcode);
+        battery.setPostcode(String.format("%04d", postcode));
+        battery.setCapacity(capacity);
+        return battery;
+    }
+
+    private static void assertStats(BatteryCapacityStats stats, long count, long totalCapacity) {
+        assertEquals(count, stats.getCount());
+        assertEquals(totalCapacity, stats.getTotalCapacity());
+        assertEquals(count == 0 ? 0.0 : (double) totalCapacity / count, stats.getAverageCapacity(), 0.0001);
+    }
+}
@@ -0,0 +1,58 @@
+package com.rore_int.vpp.validation;
+
+import com.rore_int.vpp.entity.PostcodeConverter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostcodesTest {
+
+    @Test
+    void parse_shouldReturnValueOfFourDigitPostcode() {
+        assertEquals(6000, Postcodes.parse("6000"));
+        assertEquals(800, Postcodes.parse("0800"));
+        assertEquals(0, Postcodes.parse("0000"));
+        assertEquals(9999, Postcodes.parse("9999"));
+    }
+
+    @Test
+    void parse_shouldRejectAnythingButFourAsciiDigits() {
+        assertEquals(-1, Postcodes.parse(null));
+        assertEquals(-1, Postcodes.parse(""));
+        assertEquals(-1, Postcodes.parse("600"));
+        assertEquals(-1, Postcodes.parse("60000"));
+        assertEquals(-1, Postcodes.parse("60a0"));
+        assertEquals(-1, Postcodes.parse("-600"));
+        assertEquals(-1, Postcodes.parse(" 600"));
+        // Non-ASCII digits match \d in some regex flavours but are not postcodes
+        assertEquals(-1, Postcodes.parse("٦٠٠٠"));
+    }
+
+    @Test
+    void format_shouldZeroPad() {
+        assertEquals("0800", Postcodes.format(800));
+        assertEquals("0000", Postcodes.format(0));
+        assertEquals("6000", Postcodes.format(6000));
+        assertThrows(IllegalArgumentException.class, () -> Postcodes.format(10000));
+    }
+
+    @Test
+    void validator_shouldAcceptNullAndRejectMalformedPostcodes() {
+        PostcodeValidator validator = new PostcodeValidator();
+
+        assertTrue(validator.isValid(null, null));
+        assertTrue(validator.isValid("0800", null));
+        assertFalse(validator.isValid("123", null));
+    }
+
+    @Test
+    void converter_shouldRoundTripThroughSmallint() {
+        PostcodeConverter converter = new PostcodeConverter();
+
+        assertEquals((short) 800, converter.convertToDatabaseColumn("0800"));
+        assertEquals("0800", converter.convertToEntityAttribute((short) 800));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("08a0"));
+    }
+}